@@ -0,0 +1,114 @@
+package org.reichel.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reichel.command.output.Output;
+import org.reichel.download.DownloadFile;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Vazo do DownloadFile a partir de URLs file:// e de um servidor HTTP local que substitui o espelho remoto.
+ * @author Markus Reichel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DownloadFileBenchmark {
+
+	private static final String FILE_NAME = "artifact.jar";
+
+	@Param({"file", "http"})
+	public String source;
+
+	@Param({"1048576", "33554432"})
+	public int size;
+
+	private File folder;
+
+	private File target;
+
+	private HttpServer server;
+
+	private String remoteTargetFolder;
+
+	private final Output<Integer> output = new Output<Integer>() {
+		@Override
+		public void output(Integer output) {
+		}
+	};
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		this.folder = Fixtures.createTempFolder("urei-download");
+		final File remote = new File(this.folder, "remote");
+		remote.mkdirs();
+		Fixtures.createFile(new File(remote, FILE_NAME), this.size, 1);
+		this.target = new File(this.folder, "target");
+		if("http".equals(this.source)){
+			this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+			this.server.createContext("/", new HttpHandler() {
+				@Override
+				public void handle(HttpExchange exchange) throws IOException {
+					File file = new File(remote, exchange.getRequestURI().getPath().substring(1));
+					exchange.sendResponseHeaders(200, file.length());
+					byte[] buffer = new byte[64 * 1024];
+					InputStream is = new FileInputStream(file);
+					OutputStream os = exchange.getResponseBody();
+					try {
+						int bytes;
+						while((bytes = is.read(buffer)) != -1){
+							os.write(buffer, 0, bytes);
+						}
+					} finally {
+						is.close();
+						os.close();
+					}
+				}
+			});
+			this.server.start();
+			this.remoteTargetFolder = "http://127.0.0.1:" + this.server.getAddress().getPort();
+		} else {
+			this.remoteTargetFolder = remote.toURI().toString();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if(this.server != null){
+			this.server.stop(0);
+		}
+		Fixtures.delete(this.folder);
+	}
+
+	@Benchmark
+	public File download() throws IOException {
+		return new DownloadFile(this.output, this.remoteTargetFolder)
+			.download(FILE_NAME, this.target.getAbsolutePath())
+			.getDownloadedFile();
+	}
+}
@@ -0,0 +1,108 @@
+package org.reichel.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.reichel.jar.JarTypeEnum;
+
+/**
+ * Gerao de jars e rvores de diretrios sintticos para os benchmarks.
+ * @author Markus Reichel
+ */
+public final class Fixtures {
+
+	private Fixtures(){
+	}
+
+	public static File createTempFolder(String prefix) throws IOException {
+		File folder = File.createTempFile(prefix, "");
+		if(!folder.delete() || !folder.mkdirs()){
+			throw new IOException("No foi possvel criar diretrio temporrio: " + folder);
+		}
+		return folder;
+	}
+
+	/**
+	 * Cria um jar com MANIFEST.MF contendo 'Implementation-Version' e 'Jar-Type' e entradas com contedo pseudo-aleatrio
+	 * metade compressvel, para que o deflate tenha trabalho semelhante ao de classes e recursos reais.
+	 */
+	public static File createJar(File jar, String version, JarTypeEnum jarTypeEnum, int entries, int entrySize, long seed) throws IOException {
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		manifest.getMainAttributes().put(Attributes.Name.IMPLEMENTATION_VERSION, version);
+		manifest.getMainAttributes().putValue("Jar-Type", jarTypeEnum.getType());
+		Random random = new Random(seed);
+		byte[] content = new byte[entrySize];
+		OutputStream os = new FileOutputStream(jar);
+		try {
+			JarOutputStream jos = new JarOutputStream(os, manifest);
+			for(int i = 0; i < entries; i++){
+				jos.putNextEntry(new JarEntry("org/reichel/generated/p" + (i % 32) + "/Entry" + i + ".class"));
+				random.nextBytes(content);
+				for(int j = 0; j < content.length / 2; j++){
+					content[j] = (byte) (j % 64);
+				}
+				jos.write(content);
+				jos.closeEntry();
+			}
+			jos.finish();
+		} finally {
+			os.close();
+		}
+		return jar;
+	}
+
+	/**
+	 * Cria uma rvore com width sub-diretrios por nvel at a profundidade depth e jarsPerFolder jars em cada diretrio.
+	 */
+	public static File createTree(File root, int width, int depth, int jarsPerFolder) throws IOException {
+		createTree(root, width, depth, jarsPerFolder, 0);
+		return root;
+	}
+
+	private static void createTree(File folder, int width, int depth, int jarsPerFolder, int level) throws IOException {
+		if(!folder.isDirectory() && !folder.mkdirs()){
+			throw new IOException("No foi possvel criar diretrio: " + folder);
+		}
+		for(int i = 0; i < jarsPerFolder; i++){
+			JarTypeEnum jarTypeEnum = i % 4 == 0 ? JarTypeEnum.JAR_EXPLODED : JarTypeEnum.JAR;
+			createJar(new File(folder, "lib-" + level + "-" + i + ".jar"), "1." + level + "." + i, jarTypeEnum, 16, 512, i);
+		}
+		if(level < depth){
+			for(int i = 0; i < width; i++){
+				createTree(new File(folder, "d" + i), width, depth, jarsPerFolder, level + 1);
+			}
+		}
+	}
+
+	public static File createFile(File file, int size, long seed) throws IOException {
+		byte[] content = new byte[64 * 1024];
+		new Random(seed).nextBytes(content);
+		OutputStream os = new FileOutputStream(file);
+		try {
+			for(int written = 0; written < size; written += content.length){
+				os.write(content, 0, Math.min(content.length, size - written));
+			}
+		} finally {
+			os.close();
+		}
+		return file;
+	}
+
+	public static void delete(File file) {
+		File[] children = file.listFiles();
+		if(children != null){
+			for(File child : children){
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
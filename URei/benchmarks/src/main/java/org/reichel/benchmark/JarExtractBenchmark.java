@@ -0,0 +1,78 @@
+package org.reichel.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reichel.jar.ExtractResult;
+import org.reichel.jar.JarTypeEnum;
+import org.reichel.jar.JarUtils;
+
+/**
+ * JarUtils.extractFiles em jars com muitas entradas pequenas e com poucas entradas grandes.
+ * O modo incremental mede a re-extrao do mesmo jar, em que todas as entradas so ignoradas.
+ * @author Markus Reichel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JarExtractBenchmark {
+
+	@Param({"small", "large"})
+	public String entries;
+
+	@Param({"serial", "parallel", "incremental"})
+	public String mode;
+
+	private File folder;
+
+	private File jar;
+
+	private File target;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		this.folder = Fixtures.createTempFolder("urei-extract");
+		this.jar = new File(this.folder, "app.jar");
+		if("small".equals(this.entries)){
+			Fixtures.createJar(this.jar, "1.0.0", JarTypeEnum.JAR_EXPLODED, 4000, 1024, 1);
+		} else {
+			Fixtures.createJar(this.jar, "1.0.0", JarTypeEnum.JAR_EXPLODED, 32, 2 * 1024 * 1024, 1);
+		}
+		this.target = new File(this.folder, "target");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		Fixtures.delete(this.folder);
+	}
+
+	@Benchmark
+	public Object extractFiles() throws IOException {
+		if("serial".equals(this.mode)){
+			new JarUtils().extractFiles(this.jar.getAbsolutePath(), this.target.getAbsolutePath(), true);
+			return this.target;
+		}
+		ExtractResult result = new JarUtils().incremental("incremental".equals(this.mode)).extractFilesParallel(this.jar.getAbsolutePath(), this.target.getAbsolutePath(), true);
+		if(result.hasErrors()){
+			throw new IOException("Erros na extrao: " + result.getErrors());
+		}
+		return result;
+	}
+}
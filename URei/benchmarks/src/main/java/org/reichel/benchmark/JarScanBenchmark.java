@@ -0,0 +1,77 @@
+package org.reichel.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reichel.jar.JarUtils;
+import org.reichel.jar.JarVersion;
+import org.reichel.jar.JarVersionIndex;
+
+/**
+ * JarUtils.getJarVersions sobre rvores de largura e profundidade variadas, em modo serial, paralelo e com ndice.
+ * @author Markus Reichel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JarScanBenchmark {
+
+	@Param({"4", "8"})
+	public int width;
+
+	@Param({"1", "3"})
+	public int depth;
+
+	@Param({"1", "4"})
+	public int threads;
+
+	@Param({"false", "true"})
+	public boolean index;
+
+	private File root;
+
+	private File indexFile;
+
+	private JarUtils jarUtils;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		this.root = Fixtures.createTree(Fixtures.createTempFolder("urei-scan"), this.width, this.depth, 4);
+		this.indexFile = File.createTempFile("urei-scan", ".index");
+		this.indexFile.delete();
+		this.jarUtils = new JarUtils().threads(this.threads);
+		if(this.index){
+			this.jarUtils.versionIndex(new JarVersionIndex(this.indexFile.getAbsolutePath()));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		Fixtures.delete(this.root);
+		this.indexFile.delete();
+	}
+
+	@Benchmark
+	public Map<String, JarVersion> getJarVersions() throws IOException {
+		return this.jarUtils.getJarVersions(this.root.getAbsolutePath(), new HashMap<String, JarVersion>());
+	}
+}
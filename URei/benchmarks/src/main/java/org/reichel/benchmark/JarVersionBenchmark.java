@@ -0,0 +1,86 @@
+package org.reichel.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reichel.jar.JarTypeEnum;
+import org.reichel.jar.JarVersion;
+import org.reichel.jar.JarVersionCache;
+
+/**
+ * Criao (parse) e comparao de JarVersion.
+ * Os benchmarks de parse informam o tempo de cada JarVersion, todas consumidas pelo Blackhole para que o JIT no as elimine.
+ * @author Markus Reichel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JarVersionBenchmark {
+
+	private static final int SIZE = 1000;
+
+	private String[] versions;
+
+	private String[] fileNames;
+
+	private List<JarVersion> jarVersions;
+
+	private JarVersionCache cache;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(1);
+		this.versions = new String[SIZE];
+		this.fileNames = new String[SIZE];
+		this.jarVersions = new ArrayList<JarVersion>();
+		for(int i = 0; i < SIZE; i++){
+			this.versions[i] = random.nextInt(10) + "." + random.nextInt(50) + "." + random.nextInt(200);
+			this.fileNames[i] = "lib/lib-" + i + ".jar";
+			this.jarVersions.add(new JarVersion(this.versions[i], this.fileNames[i], JarTypeEnum.JAR));
+		}
+		this.cache = new JarVersionCache();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public void parse(Blackhole blackhole) {
+		for(int i = 0; i < SIZE; i++){
+			blackhole.consume(new JarVersion(this.versions[i], this.fileNames[i], JarTypeEnum.JAR));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public void parseCached(Blackhole blackhole) {
+		for(int i = 0; i < SIZE; i++){
+			blackhole.consume(this.cache.get(this.versions[i], this.fileNames[i], JarTypeEnum.JAR));
+		}
+	}
+
+	@Benchmark
+	public List<JarVersion> sort() {
+		List<JarVersion> copy = new ArrayList<JarVersion>(this.jarVersions);
+		Collections.sort(copy);
+		return copy;
+	}
+}
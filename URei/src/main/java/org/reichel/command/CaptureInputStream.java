@@ -0,0 +1,53 @@
+package org.reichel.command;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * InputStream que copia para um RingBuffer cada byte lido.
+ * @author Markus Reichel
+ */
+class CaptureInputStream extends FilterInputStream {
+
+	private final RingBuffer ringBuffer;
+
+	CaptureInputStream(InputStream inputStream, RingBuffer ringBuffer){
+		super(inputStream);
+		this.ringBuffer = ringBuffer;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if(b != -1){
+			this.ringBuffer.write(b);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int bytes = super.read(b, off, len);
+		if(bytes > 0){
+			this.ringBuffer.write(b, off, bytes);
+		}
+		return bytes;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		byte[] buffer = new byte[(int) Math.min(n, 4096)];
+		long skipped = 0;
+		int bytes;
+		while(skipped < n && (bytes = read(buffer, 0, (int) Math.min(buffer.length, n - skipped))) != -1){
+			skipped += bytes;
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+}
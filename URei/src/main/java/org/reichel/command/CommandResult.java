@@ -0,0 +1,75 @@
+package org.reichel.command;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de um comando executado pelo CommandRunner.
+ * @author Markus Reichel
+ * @see CommandRunner
+ */
+public class CommandResult {
+
+	private final String id;
+
+	private final String command;
+
+	private final List<String> dependencies;
+
+	private final CommandStatusEnum status;
+
+	private final Integer exitCode;
+
+	private final long elapsed;
+
+	CommandResult(String id, String command, List<String> dependencies, CommandStatusEnum status, Integer exitCode, long elapsed){
+		this.id = id;
+		this.command = command;
+		this.dependencies = dependencies;
+		this.status = status;
+		this.exitCode = exitCode;
+		this.elapsed = elapsed;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return linha de comando, conforme {@link Executor#toString()}
+	 */
+	public String getCommand() {
+		return command;
+	}
+
+	public List<String> getDependencies() {
+		return Collections.unmodifiableList(dependencies);
+	}
+
+	public CommandStatusEnum getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return cdigo de sada do processo ou null se o comando no foi iniciado
+	 */
+	public Integer getExitCode() {
+		return exitCode;
+	}
+
+	/**
+	 * @return tempo de execuo em milissegundos, 0 se o comando no foi iniciado
+	 */
+	public long getElapsed() {
+		return elapsed;
+	}
+
+	public boolean isSuccess(){
+		return status == CommandStatusEnum.SUCCESS;
+	}
+
+	@Override
+	public String toString(){
+		return id + " " + status + (exitCode != null ? " exitCode=" + exitCode + " elapsed=" + elapsed + "ms" : "");
+	}
+}
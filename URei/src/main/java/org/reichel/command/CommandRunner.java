@@ -0,0 +1,367 @@
+package org.reichel.command;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.log4j.Logger;
+import org.reichel.command.output.Output;
+
+/**
+ * Execuo de um grafo acclico de comandos, cada um iniciado por um Executor assim que todas as suas dependncias
+ * terminarem com sucesso, com no mximo maxParallel comandos em execuo simultnea.
+ * O agendamento  feito na thread chamadora, cada comando em execuo ocupa uma thread do ExecutorService aguardando o processo.
+ * A sada de cada comando  enviada ao Output com o prefixo '[id] ', de forma sincronizada.
+ * Exemplo de utilizao:
+ * <pre>
+ *   CommandRunnerResult result = new CommandRunner(new SystemOutPrintOutputStringImpl())
+ *       .maxParallel(4)
+ *       .failurePolicy(FailurePolicyEnum.CONTINUE)
+ *       .add("migracao", "sh", "migracao.sh")
+ *       .add("servico", "sh", "restart.sh").dependsOn("servico", "migracao")
+ *       .add("cache", "sh", "aquecer-cache.sh").dependsOn("cache", "servico")
+ *       .add("limpeza", "sh", "limpeza.sh")
+ *       .run();
+ * </pre>
+ * @author Markus Reichel
+ * @see Executor
+ */
+public class CommandRunner {
+
+	private static final Logger logger = Logger.getLogger(CommandRunner.class);
+
+	private final Output<String> output;
+
+	private final Map<String, Command> commands = new LinkedHashMap<String, Command>();
+
+	private Integer maxParallel = null;
+
+	private ExecutorService executorService = null;
+
+	private FailurePolicyEnum failurePolicyEnum = FailurePolicyEnum.FAIL_FAST;
+
+	private boolean showLog = true;
+
+	private OutputPump pump = null;
+
+	public CommandRunner(Output<String> output){
+		if(output == null){
+			throw new IllegalArgumentException("Parametro output no pode ser nulo.");
+		}
+		this.output = output;
+	}
+
+	/**
+	 * @param id identificador nico do comando, utilizado nas dependncias e no prefixo da sada
+	 * @param command comando e argumentos, conforme {@link Executor#execute(Output, boolean, String...)}
+	 * @return A instancia de CommandRunner
+	 */
+	public CommandRunner add(String id, String... command){
+		if(id == null || "".equals(id)){
+			throw new IllegalArgumentException("Parametro id no pode ser vazio ou nulo.");
+		}
+		if(command == null || command.length == 0){
+			throw new IllegalArgumentException("Parametro command no pode ser vazio ou nulo.");
+		}
+		if(this.commands.containsKey(id)){
+			throw new IllegalArgumentException("Comando '" + id + "' j adicionado.");
+		}
+		this.commands.put(id, new Command(id, command));
+		return this;
+	}
+
+	/**
+	 * @param id comando j adicionado
+	 * @param dependencies comandos que devem terminar com sucesso antes de id ser iniciado, podem ser adicionados depois
+	 * @return A instancia de CommandRunner
+	 */
+	public CommandRunner dependsOn(String id, String... dependencies){
+		Command command = this.commands.get(id);
+		if(command == null){
+			throw new IllegalArgumentException("Comando '" + id + "' no adicionado.");
+		}
+		for(String dependency : dependencies){
+			if(!command.dependencies.contains(dependency)){
+				command.dependencies.add(dependency);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * @param maxParallel quantidade mxima de comandos em execuo simultnea, null ou menor que 1 utiliza a quantidade de processadores
+	 * @return A instancia de CommandRunner
+	 */
+	public CommandRunner maxParallel(Integer maxParallel){
+		this.maxParallel = maxParallel;
+		return this;
+	}
+
+	/**
+	 * @param executorService executor das threads que aguardam os processos, no  finalizado por CommandRunner.
+	 * Deve ter ao menos maxParallel threads para que o limite seja atingido.
+	 * @return A instancia de CommandRunner
+	 */
+	public CommandRunner executor(ExecutorService executorService){
+		this.executorService = executorService;
+		return this;
+	}
+
+	/**
+	 * @param failurePolicyEnum comportamento quando um comando falha, padro FAIL_FAST
+	 * @return A instancia de CommandRunner
+	 */
+	public CommandRunner failurePolicy(FailurePolicyEnum failurePolicyEnum){
+		if(failurePolicyEnum == null){
+			throw new IllegalArgumentException("Parametro failurePolicyEnum no pode ser nulo.");
+		}
+		this.failurePolicyEnum = failurePolicyEnum;
+		return this;
+	}
+
+	/**
+	 * @param showLog false para no enviar ao Output a sada dos comandos
+	 * @return A instancia de CommandRunner
+	 */
+	public CommandRunner showLog(boolean showLog){
+		this.showLog = showLog;
+		return this;
+	}
+
+	/**
+	 * @param pump OutputPump que l a sada de todos os comandos, ou null para uma thread de leitura por processo
+	 * @return A instancia de CommandRunner
+	 */
+	public CommandRunner pump(OutputPump pump){
+		this.pump = pump;
+		return this;
+	}
+
+	/**
+	 * Executa todos os comandos respeitando as dependncias e aguarda o trmino.
+	 * Comandos cujas dependncias falharam no so iniciados e ficam com CommandStatusEnum.SKIPPED.
+	 * @return CommandRunnerResult com o cdigo de sada e o tempo de cada comando
+	 * @throws IllegalArgumentException se uma dependncia no foi adicionada ou houver dependncia circular
+	 * @throws InterruptedException se a thread chamadora for interrompida, os processos em execuo so finalizados
+	 */
+	public CommandRunnerResult run() throws InterruptedException {
+		validate();
+		long start = System.currentTimeMillis();
+		Map<String, CommandResult> results = new HashMap<String, CommandResult>();
+		Map<String, Integer> remaining = new HashMap<String, Integer>();
+		Map<String, List<String>> dependents = new HashMap<String, List<String>>();
+		Deque<Command> ready = new ArrayDeque<Command>();
+		for(Command command : this.commands.values()){
+			remaining.put(command.id, command.dependencies.size());
+			for(String dependency : command.dependencies){
+				List<String> list = dependents.get(dependency);
+				if(list == null){
+					list = new ArrayList<String>();
+					dependents.put(dependency, list);
+				}
+				list.add(command.id);
+			}
+			if(command.dependencies.isEmpty()){
+				ready.add(command);
+			}
+		}
+
+		int workers = Math.max(1, Math.min(this.commands.size(), this.maxParallel != null && this.maxParallel > 0 ? this.maxParallel : Runtime.getRuntime().availableProcessors()));
+		ExecutorService executorService = this.executorService != null ? this.executorService : Executors.newFixedThreadPool(workers);
+		CompletionService<CommandResult> completionService = new ExecutorCompletionService<CommandResult>(executorService);
+		Map<String, Task> running = new ConcurrentHashMap<String, Task>();
+		boolean stopped = false;
+		try {
+			while(true){
+				while(!stopped && !ready.isEmpty() && running.size() < workers){
+					Task task = new Task(ready.poll());
+					running.put(task.command.id, task);
+					completionService.submit(task);
+				}
+				if(running.isEmpty()){
+					break;
+				}
+				CommandResult result;
+				try {
+					result = completionService.take().get();
+				} catch (ExecutionException e) {
+					stop(running);
+					if(e.getCause() instanceof RuntimeException){
+						throw (RuntimeException) e.getCause();
+					}
+					throw new IllegalStateException("Problemas na execuo dos comandos: " + e.getCause(), e.getCause());
+				}
+				running.remove(result.getId());
+				results.put(result.getId(), result);
+				if(result.isSuccess()){
+					List<String> list = dependents.get(result.getId());
+					if(list != null){
+						for(String dependent : list){
+							int count = remaining.get(dependent) - 1;
+							remaining.put(dependent, count);
+							if(count == 0){
+								ready.add(this.commands.get(dependent));
+							}
+						}
+					}
+				} else if(!stopped && this.failurePolicyEnum == FailurePolicyEnum.FAIL_FAST && result.getStatus() == CommandStatusEnum.FAILED){
+					logger.error("Comando '" + result.getId() + "' falhou com cdigo " + result.getExitCode() + ", finalizando os demais.");
+					stopped = true;
+					stop(running);
+				}
+			}
+		} catch (InterruptedException e) {
+			stop(running);
+			throw e;
+		} finally {
+			if(executorService != this.executorService){
+				executorService.shutdownNow();
+			}
+		}
+
+		List<CommandResult> ordered = new ArrayList<CommandResult>();
+		for(Command command : this.commands.values()){
+			CommandResult result = results.get(command.id);
+			ordered.add(result != null ? result : new CommandResult(command.id, command.toString(), command.dependencies, CommandStatusEnum.SKIPPED, null, 0));
+		}
+		return new CommandRunnerResult(ordered, System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Confere se todas as dependncias foram adicionadas e se no h ciclos, removendo repetidamente os comandos sem dependncias pendentes.
+	 */
+	private void validate() {
+		Map<String, Integer> remaining = new HashMap<String, Integer>();
+		for(Command command : this.commands.values()){
+			for(String dependency : command.dependencies){
+				if(!this.commands.containsKey(dependency)){
+					throw new IllegalArgumentException("Dependncia '" + dependency + "' do comando '" + command.id + "' no adicionada.");
+				}
+			}
+			remaining.put(command.id, command.dependencies.size());
+		}
+		boolean removed = true;
+		while(removed){
+			removed = false;
+			for(Command command : this.commands.values()){
+				if(remaining.get(command.id) == 0){
+					remaining.put(command.id, -1);
+					removed = true;
+					for(Command other : this.commands.values()){
+						if(other.dependencies.contains(command.id)){
+							remaining.put(other.id, remaining.get(other.id) - 1);
+						}
+					}
+				}
+			}
+		}
+		List<String> cycle = new ArrayList<String>();
+		for(Map.Entry<String, Integer> entry : remaining.entrySet()){
+			if(entry.getValue() > 0){
+				cycle.add(entry.getKey());
+			}
+		}
+		if(!cycle.isEmpty()){
+			throw new IllegalArgumentException("Dependncia circular entre os comandos: " + cycle);
+		}
+	}
+
+	private void stop(Map<String, Task> running) {
+		for(Task task : running.values()){
+			task.cancel();
+		}
+	}
+
+	private static class Command {
+
+		private final String id;
+
+		private final String[] command;
+
+		private final List<String> dependencies = new ArrayList<String>();
+
+		private Command(String id, String[] command){
+			this.id = id;
+			this.command = command;
+		}
+
+		@Override
+		public String toString(){
+			StringBuilder result = new StringBuilder();
+			for(String argument : this.command){
+				result.append(argument).append(" ");
+			}
+			return result.toString();
+		}
+	}
+
+	/**
+	 * Inicia o processo e aguarda o seu trmino. A finalizao pode ser solicitada antes ou depois do incio do processo.
+	 */
+	private class Task implements Callable<CommandResult> {
+
+		private final Command command;
+
+		private Executor executor;
+
+		private boolean cancelled = false;
+
+		private Task(Command command){
+			this.command = command;
+		}
+
+		@Override
+		public CommandResult call() {
+			long start = System.currentTimeMillis();
+			synchronized (this) {
+				if(this.cancelled){
+					return new CommandResult(this.command.id, this.command.toString(), this.command.dependencies, CommandStatusEnum.SKIPPED, null, 0);
+				}
+				this.executor = Executor.execute(new PrefixOutput(this.command.id), showLog, pump, this.command.command);
+			}
+			int exitCode = this.executor.waitFor();
+			CommandStatusEnum status;
+			synchronized (this) {
+				status = exitCode == 0 ? CommandStatusEnum.SUCCESS : (this.cancelled ? CommandStatusEnum.CANCELLED : CommandStatusEnum.FAILED);
+			}
+			return new CommandResult(this.command.id, this.command.toString(), this.command.dependencies, status, exitCode, System.currentTimeMillis() - start);
+		}
+
+		private synchronized void cancel() {
+			this.cancelled = true;
+			if(this.executor != null){
+				this.executor.stop();
+			}
+		}
+	}
+
+	/**
+	 * Output compartilhado pelos comandos em paralelo, cada chamada recebe o prefixo '[id] ' e  sincronizada no Output original.
+	 */
+	private class PrefixOutput implements Output<String> {
+
+		private final String prefix;
+
+		private PrefixOutput(String id){
+			this.prefix = "[" + id + "] ";
+		}
+
+		@Override
+		public void output(String output) {
+			synchronized (CommandRunner.this.output) {
+				CommandRunner.this.output.output(this.prefix + output);
+			}
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package org.reichel.command;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de uma execuo do CommandRunner, com um CommandResult por comando na ordem em que foram adicionados.
+ * @author Markus Reichel
+ * @see CommandRunner#run()
+ */
+public class CommandRunnerResult {
+
+	private final List<CommandResult> results;
+
+	private final long elapsed;
+
+	CommandRunnerResult(List<CommandResult> results, long elapsed){
+		this.results = results;
+		this.elapsed = elapsed;
+	}
+
+	public List<CommandResult> getResults() {
+		return Collections.unmodifiableList(results);
+	}
+
+	/**
+	 * @return resultado do comando ou null se o id no foi adicionado
+	 */
+	public CommandResult getResult(String id) {
+		for(CommandResult result : this.results){
+			if(result.getId().equals(id)){
+				return result;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return resultados dos comandos que no terminaram com sucesso
+	 */
+	public List<CommandResult> getFailures() {
+		List<CommandResult> failures = new ArrayList<CommandResult>();
+		for(CommandResult result : this.results){
+			if(!result.isSuccess()){
+				failures.add(result);
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * @return true se todos os comandos terminaram com sucesso
+	 */
+	public boolean isSuccess(){
+		return getFailures().isEmpty();
+	}
+
+	/**
+	 * @return tempo total da execuo em milissegundos
+	 */
+	public long getElapsed() {
+		return elapsed;
+	}
+
+	@Override
+	public String toString(){
+		return "commands=" + results.size() + " failures=" + getFailures().size() + " elapsed=" + elapsed + "ms";
+	}
+}
@@ -0,0 +1,20 @@
+package org.reichel.command;
+
+/**
+ * Situao final de um comando executado pelo CommandRunner.
+ * @author Markus Reichel
+ */
+public enum CommandStatusEnum {
+
+	/** Terminou com cdigo de sada zero. */
+	SUCCESS,
+
+	/** Terminou com cdigo de sada diferente de zero ou no pde ser iniciado. */
+	FAILED,
+
+	/** Interrompido pelo CommandRunner aps a falha de outro comando com FailurePolicyEnum.FAIL_FAST. */
+	CANCELLED,
+
+	/** No foi iniciado porque uma dependncia no terminou com sucesso ou a execuo foi interrompida. */
+	SKIPPED
+}
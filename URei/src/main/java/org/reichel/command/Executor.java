@@ -4,6 +4,15 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.reichel.command.output.Output;
 import org.reichel.command.output.SystemOutPrintOutputStringImpl;
@@ -11,6 +20,11 @@ import org.reichel.command.output.SystemOutPrintOutputStringImpl;
 
 public class Executor {
 
+	/** Tempo mximo, em milissegundos, que {@link #waitForResult()} aguarda a leitura da sada aps o trmino do processo. */
+	public static final long READ_GRACE = 1000;
+
+	private static ScheduledExecutorService timeoutScheduler;
+
 	private final String[] commands;
 
 	private Boolean showLog = true;
@@ -19,11 +33,42 @@ public class Executor {
 	
 	private Process process;
 	
+	private final OutputPump pump;
+	
+	private Charset charset = Charset.defaultCharset();
+	
+	private boolean redirectErrorStream = true;
+	
+	private int captureSize = 0;
+	
+	private long timeout = 0;
+	
+	private RingBuffer stdout;
+	
+	private RingBuffer stderr;
+	
+	private final List<CountDownLatch> readers = new ArrayList<CountDownLatch>();
+	
+	private long started;
+	
+	private volatile long finished = 0;
+	
+	private volatile boolean timedOut = false;
+	
+	private ScheduledFuture<?> timeoutFuture;
+	
 	public Executor(Output<String> output, String... command){
 		this(output, true, command);
 	}
 	
 	public Executor(Output<String> output, Boolean showLog, String... commands){
+		this(output, showLog, null, commands);
+	}
+	
+	/**
+	 * @param pump OutputPump que l a sada do processo, ou null para ler em uma thread prpria do processo
+	 */
+	public Executor(Output<String> output, Boolean showLog, OutputPump pump, String... commands){
 		if(output == null){
 			throw new IllegalArgumentException("Parameter output cannot be null.");
 		}
@@ -37,26 +82,168 @@ public class Executor {
 
 		this.output = output;
 		this.showLog = showLog;
+		this.pump = pump;
 		this.commands = commands;
 	}
 	
-	private Executor execute(){
+	/**
+	 * @param charset Charset da sada do processo e das sadas capturadas, padro Charset.defaultCharset()
+	 * @return A instancia de Executor
+	 */
+	public Executor charset(Charset charset){
+		if(charset == null){
+			throw new IllegalArgumentException("Parameter charset cannot be null.");
+		}
+		this.charset = charset;
+		return this;
+	}
+	
+	/**
+	 * @param redirectErrorStream false para ler a sada de erro separadamente da sada padro, padro true
+	 * @return A instancia de Executor
+	 */
+	public Executor redirectErrorStream(boolean redirectErrorStream){
+		this.redirectErrorStream = redirectErrorStream;
+		return this;
+	}
+	
+	/**
+	 * Mantm os ltimos bytes de cada sada em um buffer circular de tamanho fixo, disponveis em {@link #waitForResult()},
+	 * inclusive com showLog false.
+	 * @param captureSize tamanho em bytes do buffer de cada sada, 0 para no capturar
+	 * @return A instancia de Executor
+	 */
+	public Executor capture(int captureSize){
+		if(captureSize < 0){
+			throw new IllegalArgumentException("Parameter captureSize cannot be negative.");
+		}
+		this.captureSize = captureSize;
+		return this;
+	}
+	
+	/**
+	 * Finaliza o processo e seus descendentes  fora se ele no terminar em timeout milissegundos aps o incio,
+	 * independente de {@link #waitFor()} ser chamado.
+	 * @param timeout tempo mximo em milissegundos, 0 para no limitar
+	 * @return A instancia de Executor
+	 */
+	public Executor timeout(long timeout){
+		if(timeout < 0){
+			throw new IllegalArgumentException("Parameter timeout cannot be negative.");
+		}
+		this.timeout = timeout;
+		return this;
+	}
+	
+	/**
+	 * Inicia o processo com as configuraes informadas, os mtodos estticos execute chamam este mtodo.
+	 * @return A instancia de Executor
+	 */
+	public Executor start(){
+		if(this.process != null){
+			throw new IllegalStateException("Processo j iniciado: " + this);
+		}
+		this.started = System.currentTimeMillis();
 		this.process = startProcess(configProcess());
-		if(process != null){
+		if(process == null){
+			this.finished = System.currentTimeMillis();
+			return this;
+		}
+		if(this.timeout > 0){
+			this.timeoutFuture = getTimeoutScheduler().schedule(new Runnable() {
+				@Override
+				public void run() {
+					timedOut();
+				}
+			}, this.timeout, TimeUnit.MILLISECONDS);
+		}
+		process.onExit().thenRun(new Runnable() {
+			@Override
+			public void run() {
+				finished = System.currentTimeMillis();
+				if(timeoutFuture != null){
+					timeoutFuture.cancel(false);
+				}
+			}
+		});
+		if(this.captureSize > 0){
+			this.stdout = new RingBuffer(this.captureSize);
+			this.stderr = this.redirectErrorStream ? null : new RingBuffer(this.captureSize);
+		}
+		read(capture(process.getInputStream(), this.stdout), true);
+		if(!this.redirectErrorStream){
+			read(capture(process.getErrorStream(), this.stderr), false);
+		}
+		return this;
+	}
+	
+	private InputStream capture(InputStream inputStream, RingBuffer ringBuffer) {
+		return ringBuffer == null ? inputStream : new CaptureInputStream(inputStream, ringBuffer);
+	}
+	
+	private void read(final InputStream inputStream, final boolean header) {
+		if(this.pump != null){
+			if(header && showLog){
+				this.output.output(String.format("Executando comando '%s'\n", this));
+			}
+			this.readers.add(this.pump.register(process, inputStream, this.output, showLog));
+		} else {
+			final CountDownLatch done = new CountDownLatch(1);
+			this.readers.add(done);
 			new Thread(new Runnable() {
 				@Override
 				public void run() {
-					emptyBuffer(process);
+					try {
+						emptyBuffer(inputStream, header);
+					} finally {
+						done.countDown();
+					}
 				}
 			}).start();
 		}
-		return this;
 	}
 	
+	private void timedOut() {
+		if(this.process.isAlive()){
+			this.timedOut = true;
+			this.output.output(String.format("Tempo limite de %dms excedido, finalizando '%s'\n", this.timeout, this));
+			destroy(true);
+		}
+	}
+	
+	/**
+	 * Finaliza o processo e todos os seus descendentes, que so listados antes de o processo ser finalizado.
+	 */
 	public void stop(){
 		if(this.process != null){
+			destroy(false);
+		}
+	}
+	
+	/**
+	 * Finaliza  fora o processo e todos os seus descendentes.
+	 */
+	public void kill(){
+		if(this.process != null){
+			destroy(true);
+		}
+	}
+	
+	private void destroy(boolean forcibly) {
+		List<ProcessHandle> descendants = new ArrayList<ProcessHandle>();
+		this.process.descendants().forEach(descendants::add);
+		if(forcibly){
+			this.process.destroyForcibly();
+		} else {
 			this.process.destroy();
 		}
+		for(ProcessHandle descendant : descendants){
+			if(forcibly){
+				descendant.destroyForcibly();
+			} else {
+				descendant.destroy();
+			}
+		}
 	}
 	
 	public int waitFor(){
@@ -69,14 +256,51 @@ public class Executor {
 		}
 		return 1;
 	}
+	
+	/**
+	 * Aguarda o trmino do processo e, por at {@link #READ_GRACE} milissegundos, a leitura das sadas.
+	 * @return ExecutorResult com o cdigo de sada, o tempo e o final das sadas capturadas
+	 */
+	public ExecutorResult waitForResult(){
+		int exitCode = waitFor();
+		long deadline = System.currentTimeMillis() + READ_GRACE;
+		try {
+			for(CountDownLatch reader : this.readers){
+				reader.await(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		long finished = this.finished > 0 ? this.finished : System.currentTimeMillis();
+		return new ExecutorResult(exitCode, finished - this.started, this.timedOut,
+				tail(this.stdout), this.stdout != null ? this.stdout.getWritten() : 0,
+				tail(this.stderr), this.stderr != null ? this.stderr.getWritten() : 0);
+	}
+	
+	private String tail(RingBuffer ringBuffer) {
+		return ringBuffer == null ? null : new String(ringBuffer.toByteArray(), this.charset);
+	}
+
+	private static synchronized ScheduledExecutorService getTimeoutScheduler() {
+		if(timeoutScheduler == null){
+			timeoutScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Executor-timeout");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return timeoutScheduler;
+	}
 
-	private void emptyBuffer(Process process) {
+	private void emptyBuffer(InputStream is, boolean header) {
 		//Read out dir output
-		InputStream is = process.getInputStream();
-		InputStreamReader isr = new InputStreamReader(is);
+		InputStreamReader isr = new InputStreamReader(is, this.charset);
 		BufferedReader br = new BufferedReader(isr);
 		String line;
-		if(showLog){
+		if(header && showLog){
 			this.output.output(String.format("Executando comando '%s'\n", this));
 		}
 		try {
@@ -92,7 +316,7 @@ public class Executor {
 
 	private ProcessBuilder configProcess() {
 		ProcessBuilder pb = new ProcessBuilder(this.commands);
-		pb.redirectErrorStream(true);
+		pb.redirectErrorStream(this.redirectErrorStream);
 		return pb;
 	}
 
@@ -107,7 +331,32 @@ public class Executor {
 	}
 	
 	public static Executor execute(Output<String> output, boolean showLog, String... args){
-		return new Executor(output, showLog, args).execute();
+		return new Executor(output, showLog, args).start();
+	}
+	
+	/**
+	 * Executa o comando lendo a sada pelo OutputPump, sem criar uma thread para o processo.
+	 * @see OutputPump#getShared()
+	 */
+	public static Executor execute(Output<String> output, boolean showLog, OutputPump pump, String... args){
+		return new Executor(output, showLog, pump, args).start();
+	}
+	
+	/**
+	 * Executa o comando em um processo shell reutilizvel do ShellPool, sem criar um processo para o comando.
+	 * @return cdigo de sada do comando, ou 1 quando o worker no pode ser iniciado ou  finalizado durante o comando
+	 * @see ShellPool#execute(Output, boolean, String...)
+	 */
+	public static int execute(Output<String> output, boolean showLog, ShellPool pool, String... args){
+		if(pool == null){
+			throw new IllegalArgumentException("Parameter pool cannot be null.");
+		}
+		try {
+			return pool.execute(output, showLog, args);
+		} catch (IOException e) {
+			output.output("Problemas ao executar comando no ShellPool: " + e.getClass().getName() + ":" + e.getMessage());
+			return 1;
+		}
 	}
 	
 	public static Executor execute(Output<String> output, String... args){
@@ -0,0 +1,91 @@
+package org.reichel.command;
+
+/**
+ * Resultado de um processo iniciado pelo Executor, com o final da sada capturada.
+ * @author Markus Reichel
+ * @see Executor#waitForResult()
+ */
+public class ExecutorResult {
+
+	private final int exitCode;
+
+	private final long elapsed;
+
+	private final boolean timedOut;
+
+	private final String stdout;
+
+	private final String stderr;
+
+	private final long stdoutBytes;
+
+	private final long stderrBytes;
+
+	ExecutorResult(int exitCode, long elapsed, boolean timedOut, String stdout, long stdoutBytes, String stderr, long stderrBytes){
+		this.exitCode = exitCode;
+		this.elapsed = elapsed;
+		this.timedOut = timedOut;
+		this.stdout = stdout;
+		this.stdoutBytes = stdoutBytes;
+		this.stderr = stderr;
+		this.stderrBytes = stderrBytes;
+	}
+
+	/**
+	 * @return cdigo de sada do processo, 1 se o processo no pde ser iniciado
+	 */
+	public int getExitCode() {
+		return exitCode;
+	}
+
+	/**
+	 * @return tempo em milissegundos entre o incio e o trmino do processo
+	 */
+	public long getElapsed() {
+		return elapsed;
+	}
+
+	/**
+	 * @return true se o processo foi finalizado por exceder {@link Executor#timeout(long)}
+	 */
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	/**
+	 * @return final da sada padro (incluindo a de erro quando redirecionada), ou null se {@link Executor#capture(int)} no foi informado
+	 */
+	public String getStdout() {
+		return stdout;
+	}
+
+	/**
+	 * @return final da sada de erro, ou null se no capturada ou redirecionada para a sada padro
+	 */
+	public String getStderr() {
+		return stderr;
+	}
+
+	/**
+	 * @return total de bytes lidos da sada padro, maior que o tamanho de getStdout() quando o incio foi descartado
+	 */
+	public long getStdoutBytes() {
+		return stdoutBytes;
+	}
+
+	/**
+	 * @return total de bytes lidos da sada de erro
+	 */
+	public long getStderrBytes() {
+		return stderrBytes;
+	}
+
+	public boolean isSuccess(){
+		return exitCode == 0 && !timedOut;
+	}
+
+	@Override
+	public String toString(){
+		return "exitCode=" + exitCode + " elapsed=" + elapsed + "ms" + (timedOut ? " timedOut" : "");
+	}
+}
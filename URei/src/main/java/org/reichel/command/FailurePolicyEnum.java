@@ -0,0 +1,14 @@
+package org.reichel.command;
+
+/**
+ * Comportamento do CommandRunner quando um comando termina com cdigo de sada diferente de zero.
+ * @author Markus Reichel
+ */
+public enum FailurePolicyEnum {
+
+	/** Interrompe os comandos em execuo e no inicia nenhum outro. */
+	FAIL_FAST,
+
+	/** Continua executando os comandos que no dependem, direta ou indiretamente, do comando que falhou. */
+	CONTINUE
+}
@@ -0,0 +1,510 @@
+package org.reichel.command;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.reichel.command.output.Output;
+
+/**
+ * Leitura da sada de vrios processos por um pequeno conjunto de threads compartilhadas, em vez de uma thread por processo.
+ * Cada thread percorre os streams registrados lendo somente os bytes j disponveis (InputStream.available()), de forma
+ * que nenhuma thread fica bloqueada em um processo sem sada; quando nenhum stream tem dados a thread aguarda at
+ * {@link #MAX_IDLE} milissegundos.
+ * Os bytes so decodificados com o Charset configurado e as linhas so agrupadas em lotes de at maxLines linhas,
+ * ou a cada flushInterval milissegundos, com as linhas terminadas em '\n'.
+ * Os lotes de cada processo so colocados em uma fila limitada a maxPending caracteres e entregues ao Output por um conjunto
+ * fixo de threads de entrega, separado das threads de leitura. Cada processo recebe um lote por vez, na ordem de leitura, e os
+ * processos se revezam nas threads de entrega; um Output lento ocupa no mximo uma thread de entrega e atrasa somente a sada
+ * do seu prprio processo. O {@link OverflowPolicyEnum} define o que acontece quando a fila est cheia.
+ * Como a leitura usa available() em vez de bloquear, uma linha pode levar at {@link #MAX_IDLE} milissegundos a mais para
+ * ser lida e as threads de leitura acordam periodicamente enquanto houver processos registrados, mesmo sem sada;
+ * em troca, poucas threads atendem qualquer quantidade de processos.
+ * Aps o trmino do processo o stream  lido at ficar {@link #EXIT_GRACE} milissegundos sem dados, ento  fechado,
+ * mesmo que um processo filho ainda mantenha o pipe aberto.
+ * Exemplo de utilizao:
+ * <pre>
+ *   OutputPump pump = new OutputPump(2).charset(Charset.forName("UTF-8")).maxLines(200).overflow(OverflowPolicyEnum.DROP);
+ *   Executor.execute(new SystemOutPrintOutputStringImpl(), true, pump, "sh", "build.sh").waitFor();
+ * </pre>
+ * @author Markus Reichel
+ * @see Executor#execute(Output, boolean, OutputPump, String...)
+ */
+public class OutputPump {
+
+	private static final Logger logger = Logger.getLogger(OutputPump.class);
+
+	/** Tempo mximo, em milissegundos, que uma thread aguarda quando nenhum stream tem dados. */
+	public static final long MAX_IDLE = 10;
+
+	/** Tempo, em milissegundos, sem dados aps o trmino do processo para o stream ser considerado encerrado. */
+	public static final long EXIT_GRACE = 100;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/** Marca o fim da sada de um stream na fila de entrega. */
+	private static final String END = new String();
+
+	private static OutputPump shared;
+
+	private static final AtomicInteger sequence = new AtomicInteger();
+
+	private final int threads;
+
+	private final ConcurrentLinkedQueue<Stream> streams = new ConcurrentLinkedQueue<Stream>();
+
+	private final List<Thread> workers = new ArrayList<Thread>();
+
+	private final ExecutorService deliverers;
+
+	private final AtomicInteger active = new AtomicInteger();
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private final Object lock = new Object();
+
+	private volatile boolean shutdown = false;
+
+	private Charset charset = Charset.defaultCharset();
+
+	private int maxLines = 100;
+
+	private long flushInterval = 100;
+
+	private int maxPending = 256 * 1024;
+
+	private OverflowPolicyEnum overflowPolicyEnum = OverflowPolicyEnum.BLOCK;
+
+	/**
+	 * @param threads quantidade de threads de leitura, criadas como daemon no primeiro registro, e de threads de entrega
+	 */
+	public OutputPump(int threads){
+		this(threads, threads);
+	}
+
+	/**
+	 * @param threads quantidade de threads de leitura, criadas como daemon no primeiro registro
+	 * @param deliveryThreads quantidade mxima de threads de entrega ao Output, criadas como daemon conforme necessrio
+	 */
+	public OutputPump(int threads, int deliveryThreads){
+		if(threads < 1){
+			throw new IllegalArgumentException("Parametro threads deve ser maior que zero.");
+		}
+		if(deliveryThreads < 1){
+			throw new IllegalArgumentException("Parametro deliveryThreads deve ser maior que zero.");
+		}
+		this.threads = threads;
+		this.deliverers = Executors.newFixedThreadPool(deliveryThreads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "OutputPump-entrega-" + sequence.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * @return OutputPump nico na JVM com duas threads e configurao padro
+	 */
+	public static synchronized OutputPump getShared(){
+		if(shared == null){
+			shared = new OutputPump(2);
+		}
+		return shared;
+	}
+
+	/**
+	 * @param charset Charset da sada dos processos, padro Charset.defaultCharset()
+	 * @return A instancia de OutputPump
+	 */
+	public OutputPump charset(Charset charset){
+		if(charset == null){
+			throw new IllegalArgumentException("Parametro charset no pode ser nulo.");
+		}
+		this.charset = charset;
+		return this;
+	}
+
+	/**
+	 * @param maxLines quantidade de linhas que provoca a entrega ao Output, padro 100
+	 * @return A instancia de OutputPump
+	 */
+	public OutputPump maxLines(int maxLines){
+		if(maxLines < 1){
+			throw new IllegalArgumentException("Parametro maxLines deve ser maior que zero.");
+		}
+		this.maxLines = maxLines;
+		return this;
+	}
+
+	/**
+	 * @param flushInterval tempo mximo em milissegundos que uma linha completa aguarda para ser entregue, padro 100
+	 * @return A instancia de OutputPump
+	 */
+	public OutputPump flushInterval(long flushInterval){
+		this.flushInterval = Math.max(0, flushInterval);
+		return this;
+	}
+
+	/**
+	 * @param maxPending quantidade mxima de caracteres por processo aguardando entrega ao Output, padro 256K
+	 * @return A instancia de OutputPump
+	 */
+	public OutputPump maxPending(int maxPending){
+		if(maxPending < 1){
+			throw new IllegalArgumentException("Parametro maxPending deve ser maior que zero.");
+		}
+		this.maxPending = maxPending;
+		return this;
+	}
+
+	/**
+	 * @param overflowPolicyEnum comportamento quando a fila de entrega de um processo atinge maxPending, padro BLOCK
+	 * @return A instancia de OutputPump
+	 */
+	public OutputPump overflow(OverflowPolicyEnum overflowPolicyEnum){
+		if(overflowPolicyEnum == null){
+			throw new IllegalArgumentException("Parametro overflowPolicyEnum no pode ser nulo.");
+		}
+		this.overflowPolicyEnum = overflowPolicyEnum;
+		return this;
+	}
+
+	/**
+	 * Passa a ler inputStream at o fim ou at o trmino de process.
+	 * @param showLog false para descartar a sada sem decodific-la
+	 * @return CountDownLatch liberado quando o stream for fechado e toda a sua sada entregue ao Output
+	 */
+	CountDownLatch register(Process process, InputStream inputStream, Output<String> output, boolean showLog){
+		if(this.shutdown){
+			throw new IllegalStateException("OutputPump finalizado.");
+		}
+		this.active.incrementAndGet();
+		Stream stream = new Stream(process, inputStream, output, showLog);
+		this.streams.add(stream);
+		startWorkers();
+		synchronized (this.lock) {
+			this.lock.notifyAll();
+		}
+		return stream.done;
+	}
+
+	private synchronized void startWorkers() {
+		while(this.workers.size() < this.threads){
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					pump();
+				}
+			}, "OutputPump-" + sequence.incrementAndGet());
+			thread.setDaemon(true);
+			thread.start();
+			this.workers.add(thread);
+		}
+	}
+
+	/**
+	 * Finaliza as threads, os streams ainda registrados so fechados sem entregar a sada pendente.
+	 */
+	public void shutdown(){
+		this.shutdown = true;
+		synchronized (this.lock) {
+			this.lock.notifyAll();
+		}
+		Stream stream;
+		while((stream = this.streams.poll()) != null){
+			stream.close();
+			stream.done.countDown();
+		}
+		this.deliverers.shutdown();
+	}
+
+	/**
+	 * @return quantidade de streams sendo lidos
+	 */
+	public int getActive() {
+		return active.get();
+	}
+
+	/**
+	 * @return quantidade de linhas descartadas com OverflowPolicyEnum.DROP desde a criao
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	private void pump() {
+		int misses = 0;
+		long idle = 1;
+		while(!this.shutdown){
+			Stream stream = this.streams.poll();
+			if(stream == null){
+				synchronized (this.lock) {
+					if(this.streams.isEmpty() && !this.shutdown){
+						try {
+							this.lock.wait(MAX_IDLE * 100);
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+				}
+				continue;
+			}
+			boolean read;
+			try {
+				read = stream.pump();
+			} catch (RuntimeException e) {
+				logger.error("Problemas ao entregar a sada do processo: " + e);
+				stream.close();
+				stream.done.countDown();
+				read = false;
+			}
+			if(stream.finished){
+				this.active.decrementAndGet();
+			} else {
+				this.streams.add(stream);
+			}
+			if(read){
+				misses = 0;
+				idle = 1;
+			} else if(++misses > this.streams.size()){
+				misses = 0;
+				try {
+					Thread.sleep(idle);
+				} catch (InterruptedException e) {
+					return;
+				}
+				idle = Math.min(MAX_IDLE, idle * 2);
+			}
+		}
+	}
+
+	/**
+	 * Estado de leitura de um processo, atendido por uma nica thread de leitura e uma nica thread de entrega de cada vez.
+	 */
+	private class Stream {
+
+		private final Process process;
+
+		private final InputStream inputStream;
+
+		private final Output<String> output;
+
+		private final boolean showLog;
+
+		private final CharsetDecoder decoder;
+
+		private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+
+		private final CharBuffer chars;
+
+		private final StringBuilder pending = new StringBuilder();
+
+		private final ConcurrentLinkedQueue<String> deliveries = new ConcurrentLinkedQueue<String>();
+
+		private final AtomicInteger queued = new AtomicInteger();
+
+		private final AtomicBoolean delivering = new AtomicBoolean();
+
+		private int lines = 0;
+
+		private int lastLine = -1;
+
+		private long droppedLines = 0;
+
+		private long flushed = System.currentTimeMillis();
+
+		private long exited = 0;
+
+		private boolean finished = false;
+
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		private Stream(Process process, InputStream inputStream, Output<String> output, boolean showLog){
+			this.process = process;
+			this.inputStream = inputStream;
+			this.output = output;
+			this.showLog = showLog;
+			this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+			this.chars = CharBuffer.allocate((int) Math.ceil(BUFFER_SIZE * (double) this.decoder.maxCharsPerByte()));
+		}
+
+		/**
+		 * @return true se algum byte foi lido
+		 */
+		private boolean pump() {
+			boolean read = false;
+			boolean eof = false;
+			long now = System.currentTimeMillis();
+			if(overflowPolicyEnum == OverflowPolicyEnum.BLOCK && this.queued.get() >= maxPending){
+				// fila cheia: o stream no  lido, o pipe enche e somente este processo aguarda o Output
+				return false;
+			}
+			try {
+				int available = this.inputStream.available();
+				if(available > 0){
+					int count = this.inputStream.read(this.bytes.array(), this.bytes.position(), Math.min(available, this.bytes.remaining()));
+					if(count == -1){
+						eof = true;
+					} else {
+						this.bytes.position(this.bytes.position() + count);
+						decode(false);
+						read = true;
+						this.exited = 0;
+					}
+				} else if(!this.process.isAlive()){
+					if(this.exited == 0){
+						this.exited = now;
+					} else if(now - this.exited >= EXIT_GRACE){
+						eof = true;
+					}
+				}
+			} catch (IOException e) {
+				eof = true;
+			}
+			if(eof){
+				decode(true);
+				flush(true, true);
+				close();
+				deliver(END);
+			} else if(this.lines >= maxLines || (this.lines > 0 && now - this.flushed >= flushInterval)){
+				flush(false, false);
+			}
+			return read;
+		}
+
+		private void decode(boolean endOfInput) {
+			if(!this.showLog){
+				this.bytes.clear();
+				return;
+			}
+			this.bytes.flip();
+			this.decoder.decode(this.bytes, this.chars, endOfInput);
+			if(endOfInput){
+				this.decoder.flush(this.chars);
+			}
+			this.bytes.compact();
+			this.chars.flip();
+			while(this.chars.hasRemaining()){
+				char c = this.chars.get();
+				if(c == '\n'){
+					this.lines++;
+					this.lastLine = this.pending.length();
+				}
+				if(c != '\r'){
+					this.pending.append(c);
+				}
+			}
+			this.chars.clear();
+			if(this.pending.length() > maxPending){
+				flush(false, false);
+				if(this.pending.length() > maxPending){
+					// linha sem '\n' maior que maxPending
+					flush(true, false);
+				}
+			}
+		}
+
+		/**
+		 * Coloca na fila de entrega as linhas completas, ou todo o pendente se all for true.
+		 * Com OverflowPolicyEnum.DROP e a fila cheia as linhas so descartadas, exceto na entrega final (last).
+		 */
+		private void flush(boolean all, boolean last) {
+			int end = all ? this.pending.length() : this.lastLine + 1;
+			if(end > 0 && !last && overflowPolicyEnum == OverflowPolicyEnum.DROP
+					&& this.queued.get() > 0 && this.queued.get() + end > maxPending){
+				long count = all && this.pending.charAt(end - 1) != '\n' ? this.lines + 1 : this.lines;
+				this.droppedLines += count;
+				dropped.addAndGet(count);
+				this.pending.delete(0, end);
+			} else if(end > 0 || this.droppedLines > 0){
+				StringBuilder text = new StringBuilder(end + 48);
+				if(this.droppedLines > 0){
+					text.append("[").append(this.droppedLines).append(" linhas descartadas]\n");
+					this.droppedLines = 0;
+				}
+				text.append(this.pending, 0, end);
+				if(all && end > 0 && this.pending.charAt(end - 1) != '\n'){
+					text.append('\n');
+				}
+				this.pending.delete(0, end);
+				deliver(text.toString());
+			}
+			this.lines = 0;
+			this.lastLine = -1;
+			this.flushed = System.currentTimeMillis();
+		}
+
+		private void deliver(String text) {
+			this.queued.addAndGet(text.length());
+			this.deliveries.add(text);
+			schedule();
+		}
+
+		private void schedule() {
+			if(this.deliveries.isEmpty() || !this.delivering.compareAndSet(false, true)){
+				return;
+			}
+			try {
+				deliverers.execute(new Runnable() {
+					@Override
+					public void run() {
+						drain();
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// OutputPump finalizado, a sada pendente no  entregue
+				this.deliveries.clear();
+				this.done.countDown();
+			}
+		}
+
+		/**
+		 * Entrega um lote da fila ao Output na thread de entrega e reagenda o restante no fim da fila do executor,
+		 * para que um processo com muita sada no monopolize a thread; END libera o CountDownLatch do stream.
+		 */
+		private void drain() {
+			String text = this.deliveries.poll();
+			if(text == END){
+				this.done.countDown();
+			} else if(text != null){
+				try {
+					this.output.output(text);
+				} catch (RuntimeException e) {
+					logger.error("Problemas ao entregar a sada do processo: " + e);
+				} finally {
+					this.queued.addAndGet(-text.length());
+				}
+			}
+			this.delivering.set(false);
+			// lotes restantes ou adicionados durante a entrega precisam de uma nova entrega
+			schedule();
+		}
+
+		private void close() {
+			this.finished = true;
+			try {
+				this.inputStream.close();
+			} catch (IOException e) {
+				logger.error("Problemas ao liberar recursos: " + e.getMessage());
+			}
+		}
+	}
+}
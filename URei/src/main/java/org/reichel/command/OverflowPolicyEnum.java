@@ -0,0 +1,14 @@
+package org.reichel.command;
+
+/**
+ * Comportamento do OutputPump quando a fila de entrega de um processo atinge maxPending porque o Output no acompanha a sada.
+ * @author Markus Reichel
+ */
+public enum OverflowPolicyEnum {
+
+	/** Deixa de ler o processo at a fila esvaziar; o pipe enche e o processo aguarda para escrever, os demais no so afetados. */
+	BLOCK,
+
+	/** Continua lendo e descarta as linhas que no cabem na fila, informando a quantidade descartada na prxima entrega; o processo nunca aguarda. */
+	DROP
+}
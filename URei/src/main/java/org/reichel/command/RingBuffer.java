@@ -0,0 +1,57 @@
+package org.reichel.command;
+
+/**
+ * Buffer circular de tamanho fixo que mantm somente os ltimos bytes escritos.
+ * @author Markus Reichel
+ */
+class RingBuffer {
+
+	private final byte[] buffer;
+
+	private long written = 0;
+
+	RingBuffer(int capacity){
+		this.buffer = new byte[capacity];
+	}
+
+	synchronized void write(int b){
+		this.buffer[(int) (this.written % this.buffer.length)] = (byte) b;
+		this.written++;
+	}
+
+	synchronized void write(byte[] b, int off, int len){
+		if(len > this.buffer.length){
+			off += len - this.buffer.length;
+			this.written += len - this.buffer.length;
+			len = this.buffer.length;
+		}
+		int position = (int) (this.written % this.buffer.length);
+		int first = Math.min(len, this.buffer.length - position);
+		System.arraycopy(b, off, this.buffer, position, first);
+		System.arraycopy(b, off + first, this.buffer, 0, len - first);
+		this.written += len;
+	}
+
+	/**
+	 * @return os ltimos bytes escritos, no mximo a capacidade do buffer, na ordem em que foram escritos
+	 */
+	synchronized byte[] toByteArray(){
+		int size = (int) Math.min(this.written, this.buffer.length);
+		byte[] result = new byte[size];
+		int position = (int) (this.written % this.buffer.length);
+		if(this.written <= this.buffer.length){
+			System.arraycopy(this.buffer, 0, result, 0, size);
+		} else {
+			System.arraycopy(this.buffer, position, result, 0, this.buffer.length - position);
+			System.arraycopy(this.buffer, 0, result, this.buffer.length - position, position);
+		}
+		return result;
+	}
+
+	/**
+	 * @return total de bytes escritos, incluindo os que j foram sobrescritos
+	 */
+	synchronized long getWritten(){
+		return this.written;
+	}
+}
@@ -0,0 +1,335 @@
+package org.reichel.command;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+import org.reichel.command.output.Output;
+
+/**
+ * Conjunto de processos shell de longa durao que executam comandos recebidos pela entrada padro, evitando criar um
+ * processo (fork/exec da JVM) para cada comando.
+ * Cada comando  enviado em uma linha, com os argumentos entre aspas simples, executado em um subshell com a entrada
+ * padro em /dev/null e a sada de erro redirecionada para a sada padro, seguido de uma linha sentinela com um
+ * identificador aleatrio do worker, o nmero sequencial do comando e o cdigo de sada; a sada do comando  lida at a sentinela.
+ * Como cada comando  executado em um subshell, cd, variveis e exit no alteram o worker.
+ * Um worker finalizado  substitudo por um novo processo na prxima utilizao.
+ * Requer um shell POSIX (sh), no  suportado no Windows sem um shell compatvel.
+ * Exemplo de utilizao:
+ * <pre>
+ *   ShellPool pool = new ShellPool(4);
+ *   int exitCode = pool.execute(new SystemOutPrintOutputStringImpl(), true, "chmod", "+x", "bin/start.sh");
+ *   pool.shutdown();
+ * </pre>
+ * @author Markus Reichel
+ * @see Executor#execute(Output, boolean, ShellPool, String...)
+ */
+public class ShellPool {
+
+	private static final Logger logger = Logger.getLogger(ShellPool.class);
+
+	private final int workers;
+
+	private final ArrayDeque<Worker> idle = new ArrayDeque<Worker>();
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition available = this.lock.newCondition();
+
+	private int created = 0;
+
+	private final AtomicLong restarts = new AtomicLong();
+
+	private final AtomicLong executed = new AtomicLong();
+
+	private boolean shutdown = false;
+
+	private String[] shell = new String[]{"sh"};
+
+	private Charset charset = Charset.defaultCharset();
+
+	/**
+	 * @param workers quantidade mxima de processos shell, criados sob demanda
+	 */
+	public ShellPool(int workers){
+		if(workers < 1){
+			throw new IllegalArgumentException("Parameter workers must be greater than zero.");
+		}
+		this.workers = workers;
+	}
+
+	/**
+	 * @param shell comando que inicia o shell POSIX de cada worker, padro "sh"
+	 * @return A instancia de ShellPool
+	 */
+	public ShellPool shell(String... shell){
+		if(shell == null || shell.length == 0){
+			throw new IllegalArgumentException("Parameter shell cannot be null or empty.");
+		}
+		this.shell = shell;
+		return this;
+	}
+
+	/**
+	 * @param charset Charset dos comandos enviados e da sada lida, padro Charset.defaultCharset()
+	 * @return A instancia de ShellPool
+	 */
+	public ShellPool charset(Charset charset){
+		if(charset == null){
+			throw new IllegalArgumentException("Parameter charset cannot be null.");
+		}
+		this.charset = charset;
+		return this;
+	}
+
+	/**
+	 * Executa o comando em um worker livre, aguardando um worker quando todos esto ocupados.
+	 * @param output Output que recebe a sada do comando, linha a linha
+	 * @param showLog false para descartar a sada
+	 * @param args comando e argumentos, como em ProcessBuilder
+	 * @return cdigo de sada do comando
+	 * @throws IOException quando no  possvel iniciar o worker ou ele  finalizado durante o comando
+	 */
+	public int execute(Output<String> output, boolean showLog, String... args) throws IOException {
+		if(output == null){
+			throw new IllegalArgumentException("Parameter output cannot be null.");
+		}
+		if(args == null || args.length == 0){
+			throw new IllegalArgumentException("Parameter args cannot be null or empty.");
+		}
+		Worker worker = acquire();
+		boolean healthy = false;
+		try {
+			int exitCode = worker.execute(output, showLog, args);
+			healthy = true;
+			this.executed.incrementAndGet();
+			return exitCode;
+		} finally {
+			release(worker, healthy);
+		}
+	}
+
+	private Worker acquire() throws IOException {
+		this.lock.lock();
+		try {
+			while(true){
+				if(this.shutdown){
+					throw new IllegalStateException("ShellPool finalizado.");
+				}
+				Worker worker = this.idle.poll();
+				if(worker != null && worker.isAlive()){
+					return worker;
+				}
+				if(worker != null){
+					logger.warn("Worker " + worker + " finalizado, reiniciando.");
+					worker.close();
+					this.created--;
+					this.restarts.incrementAndGet();
+				}
+				if(this.created < this.workers){
+					this.created++;
+					break;
+				}
+				this.available.await();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrompido aguardando worker livre.");
+		} finally {
+			this.lock.unlock();
+		}
+		return start();
+	}
+
+	private Worker start() throws IOException {
+		try {
+			ProcessBuilder pb = new ProcessBuilder(this.shell);
+			pb.redirectErrorStream(true);
+			Worker worker = new Worker(pb.start());
+			if(logger.isDebugEnabled()){
+				logger.debug("Worker " + worker + " iniciado.");
+			}
+			return worker;
+		} catch (IOException e) {
+			free();
+			throw e;
+		}
+	}
+
+	private void release(Worker worker, boolean healthy) {
+		this.lock.lock();
+		try {
+			if(healthy && !this.shutdown){
+				this.idle.offer(worker);
+				this.available.signal();
+				return;
+			}
+		} finally {
+			this.lock.unlock();
+		}
+		worker.close();
+		if(!healthy){
+			this.restarts.incrementAndGet();
+		}
+		free();
+	}
+
+	/**
+	 * Libera a vaga de um worker descartado, acordando quem aguarda em acquire para iniciar um novo worker.
+	 */
+	private void free() {
+		this.lock.lock();
+		try {
+			this.created--;
+			this.available.signal();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Finaliza os workers livres; os ocupados so finalizados ao trmino do comando em execuo.
+	 * Quem aguarda um worker livre recebe IllegalStateException.
+	 */
+	public void shutdown(){
+		List<Worker> discarded = new ArrayList<Worker>();
+		this.lock.lock();
+		try {
+			this.shutdown = true;
+			discarded.addAll(this.idle);
+			this.idle.clear();
+			this.created -= discarded.size();
+			this.available.signalAll();
+		} finally {
+			this.lock.unlock();
+		}
+		for(Worker worker : discarded){
+			worker.close();
+		}
+	}
+
+	/**
+	 * @return quantidade de processos shell em execuo
+	 */
+	public int getWorkers(){
+		this.lock.lock();
+		try {
+			return this.created;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return quantidade de workers substitudos por terem sido finalizados
+	 */
+	public long getRestarts(){
+		return this.restarts.get();
+	}
+
+	/**
+	 * @return quantidade de comandos executados
+	 */
+	public long getExecuted(){
+		return this.executed.get();
+	}
+
+	static String quote(String arg) {
+		return "'" + arg.replace("'", "'\\''") + "'";
+	}
+
+	@Override
+	public String toString() {
+		return "workers=" + getWorkers() + "/" + this.workers + " executed=" + this.executed.get() + " restarts=" + this.restarts.get();
+	}
+
+	private class Worker {
+
+		private final Process process;
+
+		private final Writer writer;
+
+		private final BufferedReader reader;
+
+		private final String token = "__UREI_" + UUID.randomUUID().toString().replace("-", "") + "_";
+
+		private long sequence = 0;
+
+		private Worker(Process process) {
+			this.process = process;
+			this.writer = new OutputStreamWriter(process.getOutputStream(), charset);
+			this.reader = new BufferedReader(new InputStreamReader(process.getInputStream(), charset));
+		}
+
+		private boolean isAlive() {
+			return this.process.isAlive();
+		}
+
+		private int execute(Output<String> output, boolean showLog, String... args) throws IOException {
+			String sentinel = this.token + (++this.sequence) + " ";
+			StringBuilder command = new StringBuilder("(");
+			for(String arg : args){
+				command.append(' ').append(quote(arg));
+			}
+			command.append(" ) </dev/null 2>&1; printf '%s%d\\n' '").append(sentinel).append("' $?\n");
+			if(showLog){
+				output.output(String.format("Executando comando '%s'\n", toString(args)));
+			}
+			this.writer.write(command.toString());
+			this.writer.flush();
+			String line;
+			while((line = this.reader.readLine()) != null){
+				int index = line.indexOf(sentinel);
+				if(index < 0){
+					if(showLog){
+						output.output(line + "\n");
+					}
+					continue;
+				}
+				if(index > 0 && showLog){
+					output.output(line.substring(0, index) + "\n");
+				}
+				try {
+					return Integer.parseInt(line.substring(index + sentinel.length()).trim());
+				} catch (NumberFormatException e) {
+					throw new IOException("Sentinela invlida do worker " + this + ": " + line);
+				}
+			}
+			throw new IOException("Worker " + this + " finalizado durante o comando '" + toString(args) + "'.");
+		}
+
+		private String toString(String... args) {
+			StringBuilder result = new StringBuilder();
+			for(String arg : args){
+				result.append(arg).append(" ");
+			}
+			return result.toString();
+		}
+
+		private void close() {
+			try {
+				this.writer.close();
+			} catch (IOException e) {
+				logger.debug("Problemas ao fechar entrada do worker " + this + ": " + e.getMessage());
+			}
+			this.process.destroy();
+		}
+
+		@Override
+		public String toString() {
+			return "pid " + this.process.pid();
+		}
+	}
+}
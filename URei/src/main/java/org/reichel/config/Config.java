@@ -1,5 +1,6 @@
 package org.reichel.config;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -8,24 +9,63 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.log4j.Logger;
 import org.reichel.properties.SortedProperties;
 
+/**
+ * Configurao lida de um arquivo properties.
+ * Os valores so publicados em snapshots imutveis por uma AtomicReference: as leituras no usam lock e um reload
+ * substitui todos os valores de uma vez, sem expor uma configurao vazia ou parcial. As alteraes (put, save, reload)
+ * so serializadas entre si.
+ * Com {@link #watch(long)} o arquivo  monitorado por um WatchService e recarregado automaticamente; os ConfigListener
+ * recebem as chaves alteradas em cada reload.
+ * Exemplo de utilizao:
+ * <pre>
+ *   Config config = new Config().watch(500).addListener(new ConfigListener() {
+ *       public void changed(Config config, List&lt;ConfigChange&gt; changes) {
+ *           logger.info("Configurao alterada: " + changes);
+ *       }
+ *   });
+ *   String url = config.get("url");
+ * </pre>
+ * @author Markus Reichel
+ */
 public class Config {
 
 	private Logger logger = Logger.getLogger(Config.class);
 	
-	private SortedProperties property = new SortedProperties();
+	private final AtomicReference<Map<String, String>> snapshot = new AtomicReference<Map<String, String>>(Collections.<String, String>emptyMap());
+	
+	private final List<ConfigListener> listeners = new CopyOnWriteArrayList<ConfigListener>();
+	
+	private final Object lock = new Object();
 	
 	private final String configPath;
 	
 	private final Charset charset;
 	
 	private final File fileConfig; 
+	
+	private WatchService watchService;
 
 	public Config(Charset charset, String configPath){
 		if(charset == null){
@@ -43,14 +83,38 @@ public class Config {
 			logger.error("Configurao no encontrada: " + fileConfig.getAbsolutePath());
 			throw new IllegalArgumentException("Configurao no encontrada: " + fileConfig.getAbsolutePath());
 		}
-		loadProperty(fileConfig);
+		Map<String, String> loaded = loadProperty(fileConfig);
+		if(loaded != null){
+			this.snapshot.set(loaded);
+		}
 	}
 
-	private void loadProperty(File fileConfig) {
+	private Map<String, String> loadProperty(File fileConfig) {
+		SortedProperties property = new SortedProperties();
+		InputStreamReader reader = null;
 		try {
-			this.property.load(new InputStreamReader(new FileInputStream(fileConfig),this.charset));
+			reader = new InputStreamReader(new FileInputStream(fileConfig),this.charset);
+			property.load(reader);
 		} catch (IOException e) {
 			logger.error("Erro ao carregar propriedade '" + this.configPath + "'. " + e.getClass().getName() + ":" + e.getMessage());
+			return null;
+		} finally {
+			close(reader);
+		}
+		Map<String, String> result = new TreeMap<String, String>();
+		for(String key : property.stringPropertyNames()){
+			result.put(key, property.getProperty(key));
+		}
+		return Collections.unmodifiableMap(result);
+	}
+	
+	private void close(Closeable closeable) {
+		if(closeable != null){
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				logger.error("Erro ao fechar '" + this.configPath + "'. " + e.getClass().getName() + ":" + e.getMessage());
+			}
 		}
 	}
 	
@@ -59,7 +123,7 @@ public class Config {
 	}
 	
 	public String get(String key) {
-		return (String) this.property.get(key);
+		return this.snapshot.get().get(key);
 	}
 
 	public String get(String key, String... args){
@@ -67,36 +131,194 @@ public class Config {
 	}
 	
 	public List<String> getKeys(){
-		List<String> result = new ArrayList<String>();
-		for(Object o : this.property.keySet()){
-			result.add((String) o );
-		}
-		return result;
+		return new ArrayList<String>(this.snapshot.get().keySet());
+	}
+	
+	/**
+	 * Para ler vrias chaves de um mesmo estado da configurao, mesmo que um reload ocorra entre as leituras.
+	 * @return Map imutvel, ordenado por chave, com os valores atuais
+	 */
+	public Map<String, String> getSnapshot(){
+		return this.snapshot.get();
 	}
 	
 	public void save(){
-		try {
-			this.property.store(new OutputStreamWriter(new FileOutputStream(this.configPath), this.charset), "ltima atualizao");
-		} catch (FileNotFoundException e) {
-			logger.error("Erro ao salvar propriedade '" + this.configPath + "'. " + e.getClass().getName() + ":" + e.getMessage());
-		} catch (IOException e) {
-			logger.error("Erro ao carregar propriedade '" + this.configPath + "'. " + e.getClass().getName() + ":" + e.getMessage());		
+		synchronized (this.lock) {
+			SortedProperties property = new SortedProperties();
+			property.putAll(this.snapshot.get());
+			OutputStreamWriter writer = null;
+			try {
+				writer = new OutputStreamWriter(new FileOutputStream(this.configPath), this.charset);
+				property.store(writer, "ltima atualizao");
+			} catch (FileNotFoundException e) {
+				logger.error("Erro ao salvar propriedade '" + this.configPath + "'. " + e.getClass().getName() + ":" + e.getMessage());
+			} catch (IOException e) {
+				logger.error("Erro ao carregar propriedade '" + this.configPath + "'. " + e.getClass().getName() + ":" + e.getMessage());		
+			} finally {
+				close(writer);
+			}
 		}
 	}
 	
+	/**
+	 * Altera o valor publicando um novo snapshot, os ConfigListener no so notificados.
+	 */
 	public void put(String key, String value){
-		this.property.setProperty(key, value);
+		if(key == null || value == null){
+			throw new IllegalArgumentException("Parameter key and value cannot be null.");
+		}
+		synchronized (this.lock) {
+			Map<String, String> result = new TreeMap<String, String>(this.snapshot.get());
+			result.put(key, value);
+			this.snapshot.set(Collections.unmodifiableMap(result));
+		}
 	}
 	
+	/**
+	 * Carrega o arquivo e substitui o snapshot atual; se o arquivo no puder ser lido a configurao atual  mantida.
+	 * Os ConfigListener so notificados quando ao menos uma chave  alterada.
+	 */
 	public void reload(){
-		this.property.clear();
-		loadProperty(new File(this.configPath));
+		List<ConfigChange> changes;
+		synchronized (this.lock) {
+			Map<String, String> loaded = loadProperty(new File(this.configPath));
+			if(loaded == null){
+				return;
+			}
+			changes = diff(this.snapshot.getAndSet(loaded), loaded);
+		}
+		if(!changes.isEmpty()){
+			if(logger.isDebugEnabled()){
+				logger.debug("Configurao '" + this.configPath + "' alterada: " + changes);
+			}
+			for(ConfigListener listener : this.listeners){
+				try {
+					listener.changed(this, changes);
+				} catch (RuntimeException e) {
+					logger.error("Erro no ConfigListener " + listener + ". " + e.getClass().getName() + ":" + e.getMessage());
+				}
+			}
+		}
+	}
+	
+	private List<ConfigChange> diff(Map<String, String> previous, Map<String, String> current) {
+		TreeSet<String> keys = new TreeSet<String>(previous.keySet());
+		keys.addAll(current.keySet());
+		List<ConfigChange> result = new ArrayList<ConfigChange>();
+		for(String key : keys){
+			String oldValue = previous.get(key);
+			String newValue = current.get(key);
+			if(!Objects.equals(oldValue, newValue)){
+				result.add(new ConfigChange(key, oldValue, newValue));
+			}
+		}
+		return result;
 	}
 	
 	public void saveAndReload(){
 		save();
 		reload();
 	}
+	
+	/**
+	 * @param listener ConfigListener notificado a cada reload que altera a configurao
+	 * @return A instancia de Config
+	 */
+	public Config addListener(ConfigListener listener){
+		if(listener == null){
+			throw new IllegalArgumentException("Parameter listener cannot be null.");
+		}
+		this.listeners.add(listener);
+		return this;
+	}
+	
+	public void removeListener(ConfigListener listener){
+		this.listeners.remove(listener);
+	}
+	
+	/**
+	 * Monitora o arquivo com um WatchService em uma thread daemon e executa {@link #reload()} quando ele  alterado.
+	 * O reload  feito somente aps debounce milissegundos sem novos eventos, para agrupar as gravaes de um mesmo salvamento.
+	 * @param debounce milissegundos sem eventos antes do reload
+	 * @return A instancia de Config
+	 * @throws IOException quando no  possvel monitorar o diretrio do arquivo
+	 */
+	public Config watch(long debounce) throws IOException {
+		if(debounce < 0){
+			throw new IllegalArgumentException("Parameter debounce cannot be negative.");
+		}
+		synchronized (this.lock) {
+			if(this.watchService != null){
+				return this;
+			}
+			final WatchService watchService = FileSystems.getDefault().newWatchService();
+			File directory = this.fileConfig.getAbsoluteFile().getParentFile();
+			try {
+				directory.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			} catch (IOException e) {
+				close(watchService);
+				throw e;
+			}
+			this.watchService = watchService;
+			final String fileName = this.fileConfig.getName();
+			final long wait = debounce;
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					watch(watchService, fileName, wait);
+				}
+			}, "Config-watch " + fileName);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		return this;
+	}
+	
+	private void watch(WatchService watchService, String fileName, long debounce) {
+		try {
+			while(true){
+				if(!isChanged(watchService.take(), fileName)){
+					continue;
+				}
+				WatchKey next;
+				while((next = watchService.poll(debounce, TimeUnit.MILLISECONDS)) != null){
+					isChanged(next, fileName);
+				}
+				reload();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			logger.debug("Monitoramento de '" + this.configPath + "' finalizado.");
+		}
+	}
+	
+	private boolean isChanged(WatchKey key, String fileName) {
+		boolean result = false;
+		for(WatchEvent<?> event : key.pollEvents()){
+			if(event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(((Path) event.context()).getFileName().toString())){
+				result = true;
+			}
+		}
+		key.reset();
+		return result;
+	}
+	
+	/**
+	 * Finaliza o monitoramento iniciado por {@link #watch(long)}.
+	 */
+	public void unwatch(){
+		synchronized (this.lock) {
+			close(this.watchService);
+			this.watchService = null;
+		}
+	}
+	
+	public boolean isWatching(){
+		synchronized (this.lock) {
+			return this.watchService != null;
+		}
+	}
 
 	public String getConfigPath() {
 		return configPath;
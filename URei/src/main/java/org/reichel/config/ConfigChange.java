@@ -0,0 +1,52 @@
+package org.reichel.config;
+
+/**
+ * Alterao de uma chave da configurao entre dois snapshots.
+ * @author Markus Reichel
+ * @see ConfigListener
+ */
+public class ConfigChange {
+
+	private final String key;
+
+	private final String oldValue;
+
+	private final String newValue;
+
+	public ConfigChange(String key, String oldValue, String newValue) {
+		this.key = key;
+		this.oldValue = oldValue;
+		this.newValue = newValue;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * @return valor anterior, null se a chave foi includa
+	 */
+	public String getOldValue() {
+		return oldValue;
+	}
+
+	/**
+	 * @return novo valor, null se a chave foi removida
+	 */
+	public String getNewValue() {
+		return newValue;
+	}
+
+	public boolean isAdded() {
+		return oldValue == null;
+	}
+
+	public boolean isRemoved() {
+		return newValue == null;
+	}
+
+	@Override
+	public String toString() {
+		return key + ": " + oldValue + " -> " + newValue;
+	}
+}
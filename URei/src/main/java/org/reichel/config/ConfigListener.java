@@ -0,0 +1,18 @@
+package org.reichel.config;
+
+import java.util.List;
+
+/**
+ * Recebe as alteraes da configurao aps cada reload que altera ao menos uma chave.
+ * As chamadas so feitas pela thread que executou o reload, a thread de monitoramento quando {@link Config#watch(long)} est ativo.
+ * @author Markus Reichel
+ * @see Config#addListener(ConfigListener)
+ */
+public interface ConfigListener {
+
+	/**
+	 * @param config Config j com os novos valores
+	 * @param changes chaves includas, alteradas ou removidas, em ordem de chave
+	 */
+	void changed(Config config, List<ConfigChange> changes);
+}
@@ -0,0 +1,441 @@
+package org.reichel.download;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.reichel.file.HashAlgorithmEnum;
+import org.reichel.file.Hasher;
+
+/**
+ * Download assncrono de arquivos HTTP com o HttpClient do Java 11, sem ocupar uma thread por download.
+ * Os bytes so gravados em '&lt;arquivo&gt;.part' e no Hasher  medida que chegam, e o arquivo  renomeado ao final.
+ * Cada download devolve um CompletableFuture com um DownloadResult imutvel (arquivo, tamanho, tempo e hash),
+ * erros completam o CompletableFuture excepcionalmente com IOException.
+ * Diferente do DownloadFile, uma instncia no guarda estado de conexo e pode ser compartilhada entre threads,
+ * as configuraes devem ser feitas antes do primeiro download.
+ * Exemplo de utilizao:
+ * <pre>
+ *   AsyncDownload asyncDownload = new AsyncDownload("http://servidor/jars").maxConcurrent(64);
+ *   List&lt;CompletableFuture&lt;DownloadResult&gt;&gt; futures = new ArrayList&lt;CompletableFuture&lt;DownloadResult&gt;&gt;();
+ *   for(String fileName : fileNames){
+ *     futures.add(asyncDownload.download(fileName, "d:\\deploy"));
+ *   }
+ *   CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+ * </pre>
+ * @author Markus Reichel
+ * @see DownloadFile
+ */
+public class AsyncDownload {
+
+	private static final Logger logger = Logger.getLogger(AsyncDownload.class);
+
+	private static ScheduledExecutorService idleScheduler;
+
+	/** Evita a recurso de drain() quando um download em fila falha antes de sair da thread que o iniciou. */
+	private static final ThreadLocal<Boolean> draining = new ThreadLocal<Boolean>();
+
+	private final String remoteTargetFolder;
+
+	private HttpClient client = null;
+
+	private Executor executor = null;
+
+	private Integer timeout = 1000;
+
+	private HashAlgorithmEnum hashAlgorithmEnum = HashAlgorithmEnum.SHA_256;
+
+	private Integer maxConcurrent = null;
+
+	private final AtomicInteger active = new AtomicInteger();
+
+	private final Queue<Runnable> pending = new ConcurrentLinkedQueue<Runnable>();
+
+	public AsyncDownload(String path, Charset charset) throws UnsupportedEncodingException{
+		if(path == null || "".equals(path)){
+			throw new IllegalArgumentException("Parametro path no pode ser vazio ou nulo.");
+		}
+		this.remoteTargetFolder = URLDecoder.decode(path, charset.name());
+	}
+
+	public AsyncDownload(String remoteTargetFolder) throws UnsupportedEncodingException{
+		this(remoteTargetFolder, Charset.forName("UTF-8"));
+	}
+
+	/**
+	 * @param client HttpClient a ser utilizado, por padro  criado um com o timeout de conexo e o Executor informados
+	 */
+	public AsyncDownload client(HttpClient client){
+		this.client = client;
+		return this;
+	}
+
+	/**
+	 * @param executor Executor do HttpClient criado por esta instncia, por padro o do prprio HttpClient
+	 */
+	public AsyncDownload executor(Executor executor){
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * @param timeout tempo mximo em milissegundos para conectar, para receber os cabealhos da resposta e sem receber
+	 * dados do corpo, como o setReadTimeout do DownloadFile
+	 */
+	public AsyncDownload timeout(Integer timeout){
+		if(timeout == null || timeout <= 0){
+			throw new IllegalArgumentException("Parametro timeout deve ser maior que zero.");
+		}
+		this.timeout = timeout;
+		return this;
+	}
+
+	/**
+	 * @param hashAlgorithmEnum algoritmo do hash informado em {@link DownloadResult#getDigest()}, padro SHA_256
+	 */
+	public AsyncDownload algorithm(HashAlgorithmEnum hashAlgorithmEnum){
+		if(hashAlgorithmEnum == null){
+			throw new IllegalArgumentException("Parametro hashAlgorithmEnum no pode ser nulo.");
+		}
+		this.hashAlgorithmEnum = hashAlgorithmEnum;
+		return this;
+	}
+
+	/**
+	 * @param maxConcurrent quantidade mxima de downloads em andamento, os demais aguardam em fila sem ocupar threads.
+	 * null para no limitar, cada download em andamento mantm uma conexo aberta.
+	 */
+	public AsyncDownload maxConcurrent(Integer maxConcurrent){
+		if(maxConcurrent != null && maxConcurrent <= 0){
+			throw new IllegalArgumentException("Parametro maxConcurrent deve ser maior que zero.");
+		}
+		this.maxConcurrent = maxConcurrent;
+		return this;
+	}
+
+	/**
+	 * Inicia o download de remoteTargetFolder/fileName para targetFolderPath/fileName e retorna imediatamente.
+	 * @param fileName caminho do arquivo
+	 * @param targetFolderPath diretrio de destino
+	 * @return CompletableFuture completado com o DownloadResult, ou excepcionalmente com IOException se a resposta no for 200
+	 * ou se ocorrer erro de conexo ou de gravao
+	 */
+	public CompletableFuture<DownloadResult> download(final String fileName, String targetFolderPath){
+		if(fileName == null || "".equals(fileName)){
+			throw new IllegalArgumentException("Parametro fileName no pode ser vazio ou nulo.");
+		}
+		if(targetFolderPath == null || "".equals(targetFolderPath)){
+			throw new IllegalArgumentException("Parametro targetFolderPath no pode ser vazio ou nulo.");
+		}
+		final File targetFile = new File(normalizeFilePath(targetFolderPath + File.separatorChar + fileName));
+		final CompletableFuture<DownloadResult> result = new CompletableFuture<DownloadResult>();
+		Runnable task = () -> start(fileName, targetFile).whenComplete((downloadResult, throwable) -> {
+			finished();
+			if(throwable != null){
+				result.completeExceptionally(unwrap(throwable));
+			} else {
+				result.complete(downloadResult);
+			}
+		});
+		if(this.maxConcurrent == null){
+			this.active.incrementAndGet();
+			task.run();
+		} else {
+			this.pending.add(task);
+			drain();
+		}
+		return result;
+	}
+
+	private CompletableFuture<DownloadResult> start(final String fileName, final File targetFile) {
+		final long start = System.nanoTime();
+		final URI uri;
+		try {
+			uri = toURI(fileName);
+		} catch (IOException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+		File targetFolder = targetFile.getParentFile();
+		if(targetFolder != null && !targetFolder.isDirectory() && !targetFolder.mkdirs() && !targetFolder.isDirectory()){
+			return CompletableFuture.failedFuture(new IOException("No foi possvel criar diretrios:'" + targetFolder.getAbsolutePath() + "'"));
+		}
+		HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofMillis(this.timeout)).GET().build();
+		final Hasher hasher = Hasher.newHasher(this.hashAlgorithmEnum);
+		return getClient().sendAsync(request, (ResponseInfo responseInfo) -> responseInfo.statusCode() == 200
+						? new FileSubscriber(fileName, targetFile, hasher, start, this.timeout)
+						: BodySubscribers.replacing((DownloadResult) null))
+				.thenApply((HttpResponse<DownloadResult> response) -> {
+					if(response.statusCode() != 200){
+						throw new CompletionException(new IOException("Problemas ao baixar '" + uri + "', HTTP " + response.statusCode() + "."));
+					}
+					return response.body();
+				});
+	}
+
+	/**
+	 * Libera a vaga do download concludo e inicia os downloads em fila enquanto houver vagas.
+	 */
+	private void finished() {
+		this.active.decrementAndGet();
+		if(this.maxConcurrent != null){
+			drain();
+		}
+	}
+
+	/**
+	 * Inicia os downloads em fila enquanto houver vagas. Uma chamada aninhada na mesma thread retorna imediatamente,
+	 * o lao da chamada externa inicia os downloads liberados por falhas sncronas.
+	 */
+	private void drain() {
+		if(draining.get() != null){
+			return;
+		}
+		draining.set(Boolean.TRUE);
+		try {
+			while(!this.pending.isEmpty()){
+				int current = this.active.get();
+				if(current >= this.maxConcurrent){
+					return;
+				}
+				if(this.active.compareAndSet(current, current + 1)){
+					Runnable task = this.pending.poll();
+					if(task == null){
+						this.active.decrementAndGet();
+					} else {
+						task.run();
+					}
+				}
+			}
+		} finally {
+			draining.remove();
+		}
+	}
+
+	private synchronized HttpClient getClient() {
+		if(this.client == null){
+			HttpClient.Builder builder = HttpClient.newBuilder()
+					.followRedirects(HttpClient.Redirect.NORMAL)
+					.connectTimeout(Duration.ofMillis(this.timeout));
+			if(this.executor != null){
+				builder.executor(this.executor);
+			}
+			this.client = builder.build();
+		}
+		return this.client;
+	}
+
+	private static synchronized ScheduledExecutorService getIdleScheduler() {
+		if(idleScheduler == null){
+			idleScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "AsyncDownload-timeout");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return idleScheduler;
+	}
+
+	/**
+	 * Monta a URI com os caracteres invlidos codificados, a URL aceita por DownloadFile pode conter espaos.
+	 */
+	private URI toURI(String fileName) throws IOException {
+		try {
+			URL url = new URL(this.remoteTargetFolder + "/" + fileName);
+			if(!"http".equals(url.getProtocol()) && !"https".equals(url.getProtocol())){
+				throw new IOException("Protocolo no suportado pelo AsyncDownload: " + url);
+			}
+			return new URI(url.getProtocol(), url.getUserInfo(), url.getHost(), url.getPort(), url.getPath(), url.getQuery(), null);
+		} catch (URISyntaxException e) {
+			throw new IOException("Problemas ao montar URI: " + e.getMessage());
+		}
+	}
+
+	private String normalizeFilePath(String targetFilePath) {
+		return targetFilePath.replace("\\", Character.toString(File.separatorChar)).replace("/", Character.toString(File.separatorChar));
+	}
+
+	private static Throwable unwrap(Throwable throwable) {
+		Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+		if(cause instanceof IOException || cause instanceof RuntimeException || cause instanceof Error){
+			return cause;
+		}
+		return new IOException(cause);
+	}
+
+	/**
+	 * Grava o corpo da resposta em '&lt;arquivo&gt;.part' na thread que entrega cada bloco, solicitando o prximo bloco
+	 * somente aps gravar o anterior, e renomeia o arquivo ao receber o ltimo bloco.
+	 * Se nenhum bloco chegar em idleTimeout milissegundos a assinatura  cancelada e o download falha com HttpTimeoutException.
+	 */
+	private static class FileSubscriber implements BodySubscriber<DownloadResult> {
+
+		private final String fileName;
+
+		private final File targetFile;
+
+		private final File partFile;
+
+		private final Hasher hasher;
+
+		private final long start;
+
+		private final long idleTimeout;
+
+		private volatile long lastActivity;
+
+		private final CompletableFuture<DownloadResult> body = new CompletableFuture<DownloadResult>();
+
+		private Flow.Subscription subscription;
+
+		private FileChannel channel;
+
+		private long bytes = 0;
+
+		private FileSubscriber(String fileName, File targetFile, Hasher hasher, long start, long idleTimeout){
+			this.fileName = fileName;
+			this.targetFile = targetFile;
+			this.partFile = new File(targetFile.getPath() + DownloadFile.PART_EXTENSION);
+			this.hasher = hasher;
+			this.start = start;
+			this.idleTimeout = idleTimeout;
+		}
+
+		@Override
+		public synchronized void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			try {
+				this.channel = FileChannel.open(this.partFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			} catch (IOException e) {
+				subscription.cancel();
+				this.body.completeExceptionally(e);
+				return;
+			}
+			this.lastActivity = System.nanoTime();
+			scheduleIdleCheck(this.idleTimeout);
+			subscription.request(1);
+		}
+
+		/**
+		 * Agenda a verificao para o momento em que o corpo ficaria ocioso por idleTimeout, sem reagendar a cada bloco.
+		 */
+		private void scheduleIdleCheck(long delay) {
+			getIdleScheduler().schedule(new Runnable() {
+				@Override
+				public void run() {
+					checkIdle();
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+
+		private synchronized void checkIdle() {
+			if(this.body.isDone()){
+				return;
+			}
+			long idle = (System.nanoTime() - this.lastActivity) / 1000000;
+			if(idle < this.idleTimeout){
+				scheduleIdleCheck(this.idleTimeout - idle);
+				return;
+			}
+			this.subscription.cancel();
+			fail(new HttpTimeoutException("Nenhum dado recebido de '" + this.fileName + "' em " + this.idleTimeout + "ms."));
+		}
+
+		@Override
+		public synchronized void onNext(List<ByteBuffer> buffers) {
+			if(this.body.isDone()){
+				return;
+			}
+			this.lastActivity = System.nanoTime();
+			try {
+				for(ByteBuffer buffer : buffers){
+					this.hasher.update(buffer.duplicate());
+					while(buffer.hasRemaining()){
+						this.bytes += this.channel.write(buffer);
+					}
+				}
+			} catch (IOException e) {
+				this.subscription.cancel();
+				fail(e);
+				return;
+			}
+			this.subscription.request(1);
+		}
+
+		@Override
+		public synchronized void onError(Throwable throwable) {
+			if(!this.body.isDone()){
+				fail(throwable);
+			}
+		}
+
+		@Override
+		public synchronized void onComplete() {
+			if(this.body.isDone()){
+				return;
+			}
+			try {
+				this.channel.close();
+				Files.move(this.partFile.toPath(), this.targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException e) {
+				fail(e);
+				return;
+			}
+			long elapsed = (System.nanoTime() - this.start) / 1000000;
+			this.body.complete(new DownloadResult(this.fileName, this.targetFile, this.bytes, elapsed, null, this.hasher.digest()));
+		}
+
+		@Override
+		public CompletionStage<DownloadResult> getBody() {
+			return this.body;
+		}
+
+		private void fail(Throwable throwable) {
+			if(this.channel != null){
+				try {
+					this.channel.close();
+				} catch (IOException e) {
+					logger.error("Problemas ao liberar recursos: " + e.getMessage());
+				}
+			}
+			if(this.partFile.exists() && !this.partFile.delete()){
+				logger.error("No foi possvel remover '" + this.partFile.getAbsolutePath() + "'.");
+			}
+			this.body.completeExceptionally(throwable);
+		}
+	}
+}
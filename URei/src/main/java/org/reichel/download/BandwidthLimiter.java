@@ -0,0 +1,196 @@
+package org.reichel.download;
+
+import java.util.TreeMap;
+
+/**
+ * Limite de banda por token bucket compartilhvel entre vrios DownloadFile, BatchDownload ou threads de um mesmo download.
+ * Os tokens (bytes) so repostos continuamente  taxa configurada at o limite da rajada (burst), cada leitura consome
+ * a quantidade lida e, sem tokens, a thread aguarda a reposio. Uma leitura maior que os tokens disponveis deixa o saldo
+ * negativo, que  pago pelas leituras seguintes, de forma que a taxa mdia respeita o limite com qualquer tamanho de buffer.
+ * Enquanto houver leituras de maior prioridade aguardando, as de menor prioridade no consomem tokens.
+ * A taxa pode ser alterada a qualquer momento e vale para as prximas leituras.
+ * Exemplo de utilizao:
+ * <pre>
+ *   BandwidthLimiter limiter = BandwidthLimiter.getShared().rate(2 * 1024 * 1024);
+ *   new DownloadFile(output, "http://servidor/jars").limiter(limiter).priority(10).download("config.jar", "d:\\deploy");
+ * </pre>
+ * @author Markus Reichel
+ * @see DownloadFile#limiter(BandwidthLimiter)
+ */
+public class BandwidthLimiter {
+
+	/** Janela, em milissegundos, da taxa informada por {@link #getCurrentRate()}. */
+	public static final long RATE_WINDOW = 1000;
+
+	private static final BandwidthLimiter shared = new BandwidthLimiter(0);
+
+	private final long created = System.nanoTime();
+
+	/** Quantidade de leituras aguardando por prioridade. */
+	private final TreeMap<Integer, Integer> waiting = new TreeMap<Integer, Integer>();
+
+	private long rate;
+
+	private long burst;
+
+	private double tokens;
+
+	private long refilled = created;
+
+	private long total = 0;
+
+	private long windowStart = created;
+
+	private long windowBytes = 0;
+
+	private long currentRate = 0;
+
+	/**
+	 * @param rate limite em bytes por segundo, 0 ou negativo para no limitar
+	 */
+	public BandwidthLimiter(long rate){
+		rate(rate);
+	}
+
+	/**
+	 * @return instncia nica na JVM, sem limite at que {@link #rate(long)} seja chamado
+	 */
+	public static BandwidthLimiter getShared(){
+		return shared;
+	}
+
+	/**
+	 * @param rate limite em bytes por segundo, 0 ou negativo para no limitar; a rajada passa a ser de um segundo na nova taxa
+	 * @return A instancia de BandwidthLimiter
+	 */
+	public synchronized BandwidthLimiter rate(long rate){
+		refill(System.nanoTime());
+		this.rate = Math.max(0, rate);
+		return burst(this.rate);
+	}
+
+	/**
+	 * @param burst quantidade mxima de tokens acumulados enquanto no h leituras, em bytes
+	 * @return A instancia de BandwidthLimiter
+	 */
+	public synchronized BandwidthLimiter burst(long burst){
+		this.burst = Math.max(1, burst);
+		this.tokens = Math.min(this.tokens, this.burst);
+		notifyAll();
+		return this;
+	}
+
+	/**
+	 * Consome bytes tokens, aguardando enquanto o saldo estiver negativo ou houver leituras de maior prioridade aguardando.
+	 * @param bytes quantidade lida
+	 * @param priority prioridade da leitura, maior primeiro
+	 * @throws InterruptedException se a thread for interrompida enquanto aguarda
+	 */
+	public synchronized void acquire(int bytes, int priority) throws InterruptedException {
+		if(bytes <= 0){
+			return;
+		}
+		long now = System.nanoTime();
+		if(this.rate > 0){
+			refill(now);
+			if(this.tokens < 0 || hasPriorityWaiting(priority)){
+				waiting(priority, 1);
+				try {
+					while(true){
+						refill(now);
+						if(this.rate <= 0 || (this.tokens >= 0 && !hasPriorityWaiting(priority))){
+							break;
+						}
+						long waitMillis = this.tokens < 0 ? (long) Math.ceil(-this.tokens * 1000 / this.rate) : RATE_WINDOW;
+						wait(Math.max(1, waitMillis));
+						now = System.nanoTime();
+					}
+				} finally {
+					waiting(priority, -1);
+					notifyAll();
+				}
+			}
+			this.tokens -= bytes;
+		}
+		account(bytes, now);
+	}
+
+	/**
+	 * @return limite atual em bytes por segundo, 0 se no houver limite
+	 */
+	public synchronized long getRate() {
+		return rate;
+	}
+
+	/**
+	 * @return bytes por segundo na ltima janela de {@link #RATE_WINDOW} milissegundos
+	 */
+	public synchronized long getCurrentRate() {
+		account(0, System.nanoTime());
+		return currentRate;
+	}
+
+	/**
+	 * @return bytes por segundo desde a criao do BandwidthLimiter
+	 */
+	public synchronized long getAverageRate() {
+		long elapsed = System.nanoTime() - this.created;
+		return elapsed > 0 ? this.total * 1000000000L / elapsed : 0;
+	}
+
+	/**
+	 * @return total de bytes que passaram pelo BandwidthLimiter
+	 */
+	public synchronized long getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return quantidade de leituras aguardando tokens
+	 */
+	public synchronized int getWaiting() {
+		int count = 0;
+		for(Integer value : this.waiting.values()){
+			count += value;
+		}
+		return count;
+	}
+
+	private void refill(long now) {
+		if(this.rate > 0){
+			this.tokens = Math.min(this.burst, this.tokens + (now - this.refilled) * (double) this.rate / 1000000000L);
+		}
+		this.refilled = now;
+	}
+
+	private boolean hasPriorityWaiting(int priority) {
+		return !this.waiting.isEmpty() && this.waiting.lastKey() > priority;
+	}
+
+	private void waiting(int priority, int delta) {
+		Integer count = this.waiting.get(priority);
+		int value = (count == null ? 0 : count) + delta;
+		if(value > 0){
+			this.waiting.put(priority, value);
+		} else {
+			this.waiting.remove(priority);
+		}
+	}
+
+	private void account(long bytes, long now) {
+		this.total += bytes;
+		long elapsed = now - this.windowStart;
+		if(elapsed >= RATE_WINDOW * 1000000L){
+			// sem leituras por mais de duas janelas a taxa atual  zero
+			this.currentRate = elapsed >= 2 * RATE_WINDOW * 1000000L ? 0 : this.windowBytes * 1000000000L / elapsed;
+			this.windowStart = now;
+			this.windowBytes = 0;
+		}
+		this.windowBytes += bytes;
+	}
+
+	@Override
+	public synchronized String toString(){
+		return "rate=" + rate + " current=" + currentRate + " average=" + getAverageRate() + " total=" + total + " waiting=" + waiting;
+	}
+}
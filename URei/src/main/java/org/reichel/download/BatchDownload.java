@@ -0,0 +1,330 @@
+package org.reichel.download;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.reichel.command.output.Output;
+import org.reichel.file.HashAlgorithmEnum;
+
+/**
+ * Download de um lote de arquivos de um mesmo remoteTargetFolder com concorrncia limitada.
+ * Cada arquivo  baixado por um DownloadFile com as mesmas configuraes de timeout e tentativas,
+ * os workers retiram o prximo arquivo de um contador compartilhado, em ordem decrescente de prioridade e de tamanho,
+ * de forma que os arquivos maiores comeam primeiro e no ficam sozinhos no final do lote.
+ * As conexes HTTP so reaproveitadas (keep-alive) pelo HttpURLConnection, que guarda no mximo 'http.maxConnections'
+ * conexes ociosas por servidor (padro 5): para lotes com mais threads a propriedade de sistema deve ser aumentada
+ * antes da primeira conexo.
+ * Exemplo de utilizao:
+ * <pre>
+ *   BatchDownloadResult result = new BatchDownload(new SystemOutPrintOutputIntegerImpl(), "http://servidor/jars")
+ *       .threads(4)
+ *       .add("lib/a.jar")
+ *       .add("lib/b.jar", 52428800L, 0)
+ *       .download("d:\\deploy");
+ * </pre>
+ * @author Markus Reichel
+ */
+public class BatchDownload {
+
+	private static final Logger logger = Logger.getLogger(BatchDownload.class);
+
+	private final Output<Integer> output;
+
+	private final String remoteTargetFolder;
+
+	private final Charset charset;
+
+	private final List<Item> items = new ArrayList<Item>();
+
+	private Integer threads = null;
+
+	private ExecutorService executorService = null;
+
+	private Integer timeout = 1000;
+
+	private Integer retries = 0;
+
+	private Integer retryDelay = 1000;
+
+	private DownloadCache cache = null;
+
+	private HashAlgorithmEnum hashAlgorithmEnum = null;
+
+	private BandwidthLimiter limiter = null;
+
+	public BatchDownload(Output<Integer> output, String remoteTargetFolder, Charset charset){
+		if(output == null){
+			throw new IllegalArgumentException("Parametro output no pode ser nulo.");
+		}
+		if(remoteTargetFolder == null || "".equals(remoteTargetFolder)){
+			throw new IllegalArgumentException("Parametro remoteTargetFolder no pode ser vazio ou nulo.");
+		}
+		this.output = output;
+		this.remoteTargetFolder = remoteTargetFolder;
+		this.charset = charset;
+	}
+
+	public BatchDownload(Output<Integer> output, String remoteTargetFolder){
+		this(output, remoteTargetFolder, Charset.forName("UTF-8"));
+	}
+
+	/**
+	 * @param fileName caminho do arquivo sob remoteTargetFolder, sem tamanho e prioridade conhecidos
+	 * @return A instancia de BatchDownload
+	 */
+	public BatchDownload add(String fileName){
+		return add(fileName, 0, 0);
+	}
+
+	/**
+	 * @param fileName caminho do arquivo sob remoteTargetFolder
+	 * @param size tamanho esperado em bytes, utilizado somente para ordenar os downloads
+	 * @param priority arquivos de maior prioridade so iniciados antes, independente do tamanho, e tm preferncia no BandwidthLimiter
+	 * @return A instancia de BatchDownload
+	 */
+	public BatchDownload add(String fileName, long size, int priority){
+		return add(fileName, size, priority, null);
+	}
+
+	/**
+	 * @param fileName caminho do arquivo sob remoteTargetFolder
+	 * @param size tamanho esperado em bytes, utilizado somente para ordenar os downloads
+	 * @param priority arquivos de maior prioridade so iniciados antes, independente do tamanho
+	 * @param expectedDigest hash esperado em hexadecimal no algoritmo de {@link #algorithm(HashAlgorithmEnum)}, ou null
+	 * @return A instancia de BatchDownload
+	 * @see DownloadFile#checksum(HashAlgorithmEnum, String)
+	 */
+	public BatchDownload add(String fileName, long size, int priority, String expectedDigest){
+		if(fileName == null || "".equals(fileName)){
+			throw new IllegalArgumentException("Parametro fileName no pode ser vazio ou nulo.");
+		}
+		this.items.add(new Item(this.items.size(), fileName, size, priority, expectedDigest));
+		return this;
+	}
+
+	public BatchDownload addAll(List<String> fileNames){
+		for(String fileName : fileNames){
+			add(fileName);
+		}
+		return this;
+	}
+
+	/**
+	 * @param threads quantidade de downloads simultneos, null ou menor que 1 utiliza a quantidade de processadores
+	 * @return A instancia de BatchDownload
+	 */
+	public BatchDownload threads(Integer threads){
+		this.threads = threads;
+		return this;
+	}
+
+	/**
+	 * @param executorService executor utilizado nos downloads, no  finalizado por BatchDownload
+	 * @return A instancia de BatchDownload
+	 */
+	public BatchDownload executor(ExecutorService executorService){
+		this.executorService = executorService;
+		return this;
+	}
+
+	/**
+	 * @see DownloadFile#timeout(Integer)
+	 */
+	public BatchDownload timeout(Integer timeout){
+		this.timeout = timeout;
+		return this;
+	}
+
+	/**
+	 * @see DownloadFile#retries(Integer)
+	 */
+	public BatchDownload retries(Integer retries){
+		this.retries = retries;
+		return this;
+	}
+
+	/**
+	 * @see DownloadFile#retryDelay(Integer)
+	 */
+	public BatchDownload retryDelay(Integer retryDelay){
+		if(retryDelay == null || retryDelay < 0){
+			throw new IllegalArgumentException("Parametro retryDelay no pode ser nulo ou negativo.");
+		}
+		this.retryDelay = retryDelay;
+		return this;
+	}
+
+	/**
+	 * @see DownloadFile#cache(DownloadCache)
+	 */
+	public BatchDownload cache(DownloadCache cache){
+		this.cache = cache;
+		return this;
+	}
+
+	/**
+	 * @param hashAlgorithmEnum algoritmo do hash calculado durante a gravao de cada arquivo e conferido com o hash
+	 * informado em {@link #add(String, long, int, String)}, null para no calcular
+	 * @see DownloadFile#checksum(HashAlgorithmEnum, String)
+	 */
+	public BatchDownload algorithm(HashAlgorithmEnum hashAlgorithmEnum){
+		this.hashAlgorithmEnum = hashAlgorithmEnum;
+		return this;
+	}
+
+	/**
+	 * @param limiter BandwidthLimiter compartilhado pelos downloads do lote, cada arquivo consome banda com a sua prioridade
+	 * @see DownloadFile#limiter(BandwidthLimiter)
+	 */
+	public BatchDownload limiter(BandwidthLimiter limiter){
+		this.limiter = limiter;
+		return this;
+	}
+
+	/**
+	 * Faz o download de todos os arquivos adicionados para targetFolderPath, mantendo o caminho relativo de cada um.
+	 * Falhas em um arquivo no interrompem os demais e so informadas no DownloadResult do arquivo.
+	 * Arquivos no baixados porque as threads do executor foram interrompidas recebem um DownloadResult com InterruptedIOException.
+	 * @param targetFolderPath diretrio de destino
+	 * @return BatchDownloadResult com o resultado de cada arquivo
+	 * @throws IOException quando a thread chamadora for interrompida
+	 */
+	public BatchDownloadResult download(final String targetFolderPath) throws IOException {
+		long start = System.currentTimeMillis();
+		final Item[] ordered = this.items.toArray(new Item[this.items.size()]);
+		Arrays.sort(ordered, new Comparator<Item>() {
+			@Override
+			public int compare(Item o1, Item o2) {
+				if(o1.priority != o2.priority){
+					return o1.priority > o2.priority ? -1 : 1;
+				}
+				if(o1.size != o2.size){
+					return o1.size > o2.size ? -1 : 1;
+				}
+				return o1.index - o2.index;
+			}
+		});
+		final DownloadResult[] results = new DownloadResult[ordered.length];
+		if(ordered.length > 0){
+			int workers = Math.min(ordered.length, this.threads != null && this.threads > 0 ? this.threads : Runtime.getRuntime().availableProcessors());
+			ExecutorService executorService = this.executorService != null ? this.executorService : Executors.newFixedThreadPool(workers);
+			try {
+				final AtomicInteger next = new AtomicInteger();
+				List<Future<Void>> futures = new ArrayList<Future<Void>>();
+				for(int i = 0; i < workers; i++){
+					futures.add(executorService.submit(new Callable<Void>() {
+						@Override
+						public Void call() throws UnsupportedEncodingException {
+							int index;
+							while((index = next.getAndIncrement()) < ordered.length && !Thread.currentThread().isInterrupted()){
+								results[ordered[index].index] = download(ordered[index], targetFolderPath);
+							}
+							return null;
+						}
+					}));
+				}
+				for(Future<Void> future : futures){
+					try {
+						future.get();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						next.set(ordered.length);
+						throw new InterruptedIOException("Download do lote interrompido.");
+					} catch (ExecutionException e) {
+						if(e.getCause() instanceof RuntimeException){
+							throw (RuntimeException) e.getCause();
+						}
+						throw new IOException("Problemas no download do lote: " + e.getCause());
+					}
+				}
+			} finally {
+				if(executorService != this.executorService){
+					executorService.shutdownNow();
+				}
+			}
+			for(Item item : ordered){
+				if(results[item.index] == null){
+					results[item.index] = new DownloadResult(item.fileName, null, 0, 0, new InterruptedIOException("Download de '" + item.fileName + "' interrompido."));
+				}
+			}
+		}
+		return new BatchDownloadResult(new ArrayList<DownloadResult>(Arrays.asList(results)), System.currentTimeMillis() - start);
+	}
+
+	private DownloadResult download(Item item, String targetFolderPath) throws UnsupportedEncodingException {
+		String fileName = item.fileName;
+		final AtomicLong bytes = new AtomicLong();
+		DownloadFile downloadFile = new DownloadFile(new Output<Integer>() {
+			@Override
+			public void output(Integer output) {
+				bytes.addAndGet(output);
+				synchronized (BatchDownload.this.output) {
+					BatchDownload.this.output.output(output);
+				}
+			}
+		}, this.remoteTargetFolder, this.charset).timeout(this.timeout).retries(this.retries).retryDelay(this.retryDelay).cache(this.cache)
+				.limiter(this.limiter).priority(item.priority);
+		if(this.hashAlgorithmEnum != null){
+			downloadFile.checksum(this.hashAlgorithmEnum, item.expectedDigest);
+		}
+		long start = System.currentTimeMillis();
+		IOException error = null;
+		try {
+			downloadFile.download(fileName, targetFolderPath);
+		} catch (IOException e) {
+			logger.error("Problemas no download de '" + fileName + "': " + e.getMessage());
+			error = e;
+		} catch (RuntimeException e) {
+			logger.error("Problemas no download de '" + fileName + "': " + e);
+			error = new IOException("Problemas no download de '" + fileName + "': " + e, e);
+		}
+		return new DownloadResult(fileName, downloadFile.getDownloadedFile(), bytes.get(), System.currentTimeMillis() - start, error, downloadFile.getDigest());
+	}
+
+	/**
+	 * @return caminhos adicionados, na ordem em que foram adicionados
+	 */
+	public List<String> getFileNames(){
+		List<String> fileNames = new ArrayList<String>();
+		for(Item item : this.items){
+			fileNames.add(item.fileName);
+		}
+		return Collections.unmodifiableList(fileNames);
+	}
+
+	private static class Item {
+
+		private final int index;
+
+		private final String fileName;
+
+		private final long size;
+
+		private final int priority;
+
+		private final String expectedDigest;
+
+		private Item(int index, String fileName, long size, int priority, String expectedDigest){
+			this.index = index;
+			this.fileName = fileName;
+			this.size = size;
+			this.priority = priority;
+			this.expectedDigest = expectedDigest;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package org.reichel.download;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de um BatchDownload, com o DownloadResult de cada arquivo na ordem em que foram adicionados.
+ * @author Markus Reichel
+ * @see BatchDownload#download(String)
+ */
+public class BatchDownloadResult {
+
+	private final List<DownloadResult> results;
+
+	private final long elapsed;
+
+	BatchDownloadResult(List<DownloadResult> results, long elapsed){
+		this.results = results;
+		this.elapsed = elapsed;
+	}
+
+	public List<DownloadResult> getResults() {
+		return Collections.unmodifiableList(results);
+	}
+
+	/**
+	 * @return resultados dos arquivos cujo download falhou
+	 */
+	public List<DownloadResult> getErrors() {
+		List<DownloadResult> errors = new ArrayList<DownloadResult>();
+		for(DownloadResult result : this.results){
+			if(!result.isSuccess()){
+				errors.add(result);
+			}
+		}
+		return errors;
+	}
+
+	public boolean hasErrors(){
+		return !getErrors().isEmpty();
+	}
+
+	/**
+	 * @return total de bytes recebidos
+	 */
+	public long getBytes() {
+		long bytes = 0;
+		for(DownloadResult result : this.results){
+			bytes += result.getBytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return tempo total do lote em milissegundos
+	 */
+	public long getElapsed() {
+		return elapsed;
+	}
+
+	/**
+	 * @return vazo agregada em bytes por segundo
+	 */
+	public long getThroughput() {
+		return this.elapsed > 0 ? getBytes() * 1000 / this.elapsed : getBytes();
+	}
+
+	@Override
+	public String toString(){
+		return "files=" + results.size() + " errors=" + getErrors().size() + " bytes=" + getBytes() + " elapsed=" + elapsed + "ms throughput=" + getThroughput() + "B/s";
+	}
+}
@@ -0,0 +1,38 @@
+package org.reichel.download;
+
+import java.io.IOException;
+
+/**
+ * Hash do contedo baixado diferente do hash esperado, informado em {@link DownloadFile#checksum(org.reichel.file.HashAlgorithmEnum, String)}.
+ * O arquivo '.part'  removido e o arquivo de destino no  substitudo.
+ * @author Markus Reichel
+ */
+public class ChecksumException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String url;
+
+	private final String expected;
+
+	private final String actual;
+
+	ChecksumException(String url, String expected, String actual){
+		super("Hash de '" + url + "' no confere, esperado: " + expected + ", calculado: " + actual + ".");
+		this.url = url;
+		this.expected = expected;
+		this.actual = actual;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public String getExpected() {
+		return expected;
+	}
+
+	public String getActual() {
+		return actual;
+	}
+}
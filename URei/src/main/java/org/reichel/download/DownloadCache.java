@@ -0,0 +1,406 @@
+package org.reichel.download;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.reichel.properties.SortedProperties;
+
+/**
+ * Cache local de downloads HTTP, compartilhvel entre instncias de DownloadFile e threads.
+ * O contedo  gravado uma nica vez por SHA-256 em 'objects/&lt;hash&gt;' e o arquivo 'index.properties' relaciona cada URL
+ * ao hash e aos validadores (ETag e Last-Modified) da resposta.
+ * Um download de uma URL em cache  feito com If-None-Match/If-Modified-Since, e a resposta 304  servida com um hard link para o
+ * contedo do cache quando o cache e o destino esto no mesmo sistema de arquivos, ou copiando o contedo caso contrrio.
+ * O contedo em 'objects' nunca  regravado no lugar (um novo contedo gera um novo hash), por isso o link  seguro para o cache;
+ * os arquivos de destino tambm no devem ser alterados no lugar.
+ * Quando o tamanho total ultrapassa maxSize as URLs acessadas h mais tempo so removidas (LRU).
+ * Exemplo de utilizao:
+ * <pre>
+ *   DownloadCache cache = new DownloadCache("d:\\cache").maxSize(2L * 1024 * 1024 * 1024);
+ *   new DownloadFile(output, "http://servidor/jars").cache(cache).download("ambiente-config.jar", "d:\\deploy");
+ * </pre>
+ * @author Markus Reichel
+ * @see DownloadFile#cache(DownloadCache)
+ */
+public class DownloadCache {
+
+	private static final Logger logger = Logger.getLogger(DownloadCache.class);
+
+	public static final String INDEX_FILE = "index.properties";
+	public static final String OBJECTS_FOLDER = "objects";
+
+	public static String PROPERTIES_HASH = ".hash";
+	public static String PROPERTIES_ETAG = ".etag";
+	public static String PROPERTIES_LAST_MODIFIED = ".lastModified";
+	public static String PROPERTIES_LAST_ACCESS = ".lastAccess";
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final File cacheFolder;
+
+	private final File objectsFolder;
+
+	private final File indexFile;
+
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+	private final Map<String, Long> objects = new HashMap<String, Long>();
+
+	private long size = 0;
+
+	private long maxSize = Long.MAX_VALUE;
+
+	private final AtomicInteger hits = new AtomicInteger();
+
+	private final AtomicInteger misses = new AtomicInteger();
+
+	public DownloadCache(String cacheFolderPath){
+		if(cacheFolderPath == null || "".equals(cacheFolderPath)){
+			throw new IllegalArgumentException("Parametro cacheFolderPath no pode ser vazio ou nulo.");
+		}
+		this.cacheFolder = new File(cacheFolderPath);
+		this.objectsFolder = new File(this.cacheFolder, OBJECTS_FOLDER);
+		this.indexFile = new File(this.cacheFolder, INDEX_FILE);
+		if(!this.objectsFolder.isDirectory()){
+			this.objectsFolder.mkdirs();
+		}
+		if(this.indexFile.exists()){
+			load();
+		}
+	}
+
+	/**
+	 * @param maxSize tamanho mximo em bytes do contedo em cache
+	 * @return a instancia de DownloadCache
+	 */
+	public synchronized DownloadCache maxSize(long maxSize){
+		if(maxSize < 0){
+			throw new IllegalArgumentException("Parametro maxSize no pode ser negativo.");
+		}
+		this.maxSize = maxSize;
+		if(evict()){
+			store();
+		}
+		return this;
+	}
+
+	private void load() {
+		SortedProperties properties = new SortedProperties();
+		InputStream is = null;
+		try {
+			is = new FileInputStream(this.indexFile);
+			properties.load(is);
+		} catch (IOException e) {
+			logger.error("Erro ao carregar ndice '" + this.indexFile.getAbsolutePath() + "'. " + e.getClass().getName() + ":" + e.getMessage());
+		} finally {
+			close(is);
+		}
+		Enumeration<Object> keys = properties.keys();
+		while(keys.hasMoreElements()){
+			String key = keys.nextElement().toString();
+			if(key.endsWith(PROPERTIES_HASH)){
+				String url = key.substring(0, key.length() - PROPERTIES_HASH.length());
+				String hash = properties.getProperty(key);
+				File object = getObject(hash);
+				if(!object.isFile()){
+					logger.info("Contedo de '" + url + "' no existe mais no cache.");
+					continue;
+				}
+				try {
+					long lastAccess = Long.parseLong(properties.getProperty(url + PROPERTIES_LAST_ACCESS, "0"));
+					this.entries.put(url, new Entry(hash, properties.getProperty(url + PROPERTIES_ETAG), properties.getProperty(url + PROPERTIES_LAST_MODIFIED), lastAccess));
+					if(!this.objects.containsKey(hash)){
+						this.objects.put(hash, object.length());
+						this.size += object.length();
+					}
+				} catch (RuntimeException e) {
+					logger.error("Entrada invlida no ndice '" + url + "': " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adiciona  conexo ainda no conectada os cabealhos condicionais da URL, se ela estiver em cache.
+	 * @return true se os cabealhos foram adicionados e uma resposta 304 pode ser servida pelo cache
+	 */
+	synchronized boolean prepare(URLConnection connection){
+		Entry entry = this.entries.get(connection.getURL().toString());
+		if(entry == null || !(connection instanceof HttpURLConnection) || !getObject(entry.hash).isFile()){
+			return false;
+		}
+		if(entry.etag != null){
+			connection.setRequestProperty("If-None-Match", entry.etag);
+		}
+		if(entry.lastModified != null){
+			connection.setRequestProperty("If-Modified-Since", entry.lastModified);
+		}
+		return true;
+	}
+
+	/**
+	 * Registra um acerto para a URL, atualizando o seu ltimo acesso.
+	 * @return arquivo com o contedo em cache da URL ou null se no existir mais
+	 */
+	synchronized File hit(String url){
+		Entry entry = this.entries.get(url);
+		if(entry == null || !getObject(entry.hash).isFile()){
+			return null;
+		}
+		this.hits.incrementAndGet();
+		entry.lastAccess = System.currentTimeMillis();
+		store();
+		return getObject(entry.hash);
+	}
+
+	void miss(){
+		this.misses.incrementAndGet();
+	}
+
+	/**
+	 * Remove a URL do cache, liberando o contedo se nenhuma outra URL o referencia.
+	 * Usado quando o contedo em cache no confere com o hash esperado.
+	 */
+	synchronized void invalidate(String url){
+		Entry entry = this.entries.remove(url);
+		if(entry != null){
+			logger.info("Removendo do cache: " + url);
+			release(entry.hash);
+			store();
+		}
+	}
+
+	/**
+	 * @return tamanho em bytes do contedo em cache da URL ou -1 se no estiver em cache
+	 */
+	synchronized long getSize(String url){
+		Entry entry = this.entries.get(url);
+		return entry != null && this.objects.containsKey(entry.hash) ? this.objects.get(entry.hash) : -1;
+	}
+
+	/**
+	 * Copia file para o cache calculando o SHA-256 na mesma leitura e associa o contedo  URL.
+	 * A cpia  feita fora do bloqueio do cache, somente a atualizao do ndice  sincronizada.
+	 */
+	void put(String url, File file, String etag, String lastModified) throws IOException {
+		MessageDigest messageDigest;
+		try {
+			messageDigest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("SHA-256 no suportado: " + e.getMessage());
+		}
+		File temp = File.createTempFile("download", ".tmp", this.objectsFolder);
+		try {
+			InputStream is = new FileInputStream(file);
+			try {
+				OutputStream os = new FileOutputStream(temp);
+				try {
+					byte[] buffer = new byte[64 * 1024];
+					int bytes;
+					while((bytes = is.read(buffer)) != -1){
+						messageDigest.update(buffer, 0, bytes);
+						os.write(buffer, 0, bytes);
+					}
+				} finally {
+					os.close();
+				}
+			} finally {
+				is.close();
+			}
+			String hash = toHex(messageDigest.digest());
+			synchronized (this) {
+				File object = getObject(hash);
+				if(!this.objects.containsKey(hash) || !object.isFile()){
+					object.getParentFile().mkdirs();
+					if(object.isFile() && !object.delete() || !temp.renameTo(object)){
+						throw new IOException("No foi possvel gravar '" + object.getAbsolutePath() + "'.");
+					}
+					if(!this.objects.containsKey(hash)){
+						this.objects.put(hash, object.length());
+						this.size += object.length();
+					}
+				}
+				Entry previous = this.entries.put(url, new Entry(hash, etag, lastModified, System.currentTimeMillis()));
+				if(previous != null && !previous.hash.equals(hash)){
+					release(previous.hash);
+				}
+				evict();
+				store();
+			}
+		} finally {
+			if(temp.exists() && !temp.delete()){
+				logger.error("No foi possvel remover '" + temp.getAbsolutePath() + "'.");
+			}
+		}
+	}
+
+	/**
+	 * Remove as URLs acessadas h mais tempo at que o tamanho total no ultrapasse maxSize.
+	 * @return true se alguma URL foi removida
+	 */
+	private boolean evict() {
+		if(this.size <= this.maxSize){
+			return false;
+		}
+		List<Map.Entry<String, Entry>> lru = new ArrayList<Map.Entry<String, Entry>>(this.entries.entrySet());
+		Collections.sort(lru, new Comparator<Map.Entry<String, Entry>>() {
+			@Override
+			public int compare(Map.Entry<String, Entry> o1, Map.Entry<String, Entry> o2) {
+				long a = o1.getValue().lastAccess;
+				long b = o2.getValue().lastAccess;
+				return a < b ? -1 : (a > b ? 1 : 0);
+			}
+		});
+		for(int i = 0; i < lru.size() && this.size > this.maxSize; i++){
+			String url = lru.get(i).getKey();
+			Entry entry = this.entries.remove(url);
+			logger.info("Removendo do cache: " + url);
+			release(entry.hash);
+		}
+		return true;
+	}
+
+	/**
+	 * Remove o contedo se nenhuma URL o referencia mais.
+	 */
+	private void release(String hash) {
+		for(Entry entry : this.entries.values()){
+			if(entry.hash.equals(hash)){
+				return;
+			}
+		}
+		Long length = this.objects.remove(hash);
+		if(length != null){
+			this.size -= length;
+		}
+		File object = getObject(hash);
+		if(object.exists() && !object.delete()){
+			logger.error("No foi possvel remover '" + object.getAbsolutePath() + "'.");
+		}
+	}
+
+	/**
+	 * Grava o ndice em um arquivo temporrio renomeado sobre o anterior, erros so apenas registrados.
+	 */
+	private void store() {
+		SortedProperties properties = new SortedProperties();
+		for(Map.Entry<String, Entry> mapEntry : this.entries.entrySet()){
+			String url = mapEntry.getKey();
+			Entry entry = mapEntry.getValue();
+			properties.setProperty(url + PROPERTIES_HASH, entry.hash);
+			properties.setProperty(url + PROPERTIES_LAST_ACCESS, Long.toString(entry.lastAccess));
+			if(entry.etag != null){
+				properties.setProperty(url + PROPERTIES_ETAG, entry.etag);
+			}
+			if(entry.lastModified != null){
+				properties.setProperty(url + PROPERTIES_LAST_MODIFIED, entry.lastModified);
+			}
+		}
+		File temp = new File(this.cacheFolder, INDEX_FILE + ".tmp");
+		OutputStream os = null;
+		try {
+			os = new FileOutputStream(temp);
+			properties.store(os, "DownloadCache");
+			os.close();
+			os = null;
+			if(!temp.renameTo(this.indexFile) && (!this.indexFile.delete() || !temp.renameTo(this.indexFile))){
+				logger.error("No foi possvel gravar '" + this.indexFile.getAbsolutePath() + "'.");
+			}
+		} catch (IOException e) {
+			logger.error("Erro ao gravar '" + this.indexFile.getAbsolutePath() + "': " + e.getMessage());
+		} finally {
+			close(os);
+		}
+	}
+
+	private File getObject(String hash) {
+		return new File(new File(this.objectsFolder, hash.substring(0, 2)), hash);
+	}
+
+	/**
+	 * @return quantidade de downloads servidos pelo cache (resposta 304)
+	 */
+	public int getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return quantidade de downloads feitos do servidor com o cache ativo
+	 */
+	public int getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return tamanho total em bytes do contedo em cache
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return quantidade de URLs em cache
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public File getCacheFolder() {
+		return cacheFolder;
+	}
+
+	private static String toHex(byte[] bytes){
+		char[] chars = new char[bytes.length * 2];
+		for(int i = 0; i < bytes.length; i++){
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+
+	private void close(Closeable closeable) {
+		if(closeable != null){
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				logger.error("Problemas ao liberar recursos: " + e.getMessage());
+			}
+		}
+	}
+
+	private static class Entry {
+
+		private final String hash;
+
+		private final String etag;
+
+		private final String lastModified;
+
+		private long lastAccess;
+
+		private Entry(String hash, String etag, String lastModified, long lastAccess){
+			this.hash = hash;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.lastAccess = lastAccess;
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package org.reichel.download;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.reichel.properties.SortedProperties;
+
+/**
+ * Arquivo auxiliar de um download em andamento ('&lt;arquivo&gt;.part.checkpoint'), gravado ao lado do '.part'.
+ * Guarda a URL, o tamanho e os validadores (ETag e Last-Modified) da resposta original para que o download s seja
+ * retomado se o arquivo remoto no mudou.
+ * Sem 'ranges' o '.part' foi gravado sequencialmente e o seu tamanho  a posio de retomada,
+ * com 'ranges' (download segmentado) so as faixas 'incio-fim' ainda no gravadas.
+ * @author Markus Reichel
+ * @see DownloadFile#retries(Integer)
+ */
+class DownloadCheckpoint {
+
+	private static final Logger logger = Logger.getLogger(DownloadCheckpoint.class);
+
+	static final String PROPERTIES_URL = "url";
+	static final String PROPERTIES_LENGTH = "length";
+	static final String PROPERTIES_ETAG = "etag";
+	static final String PROPERTIES_LAST_MODIFIED = "lastModified";
+	static final String PROPERTIES_RANGES = "ranges";
+
+	private final File checkpointFile;
+
+	private final SortedProperties properties = new SortedProperties();
+
+	DownloadCheckpoint(File checkpointFile){
+		this.checkpointFile = checkpointFile;
+		if(checkpointFile.exists()){
+			InputStream is = null;
+			try {
+				is = new FileInputStream(checkpointFile);
+				this.properties.load(is);
+			} catch (IOException e) {
+				logger.error("Erro ao carregar '" + checkpointFile.getAbsolutePath() + "'. " + e.getClass().getName() + ":" + e.getMessage());
+				this.properties.clear();
+			} finally {
+				close(is);
+			}
+		}
+	}
+
+	/**
+	 * @return true se o checkpoint foi gravado para a mesma URL e tamanho e algum validador informado  igual ao registrado
+	 */
+	boolean matches(String url, long length, String etag, String lastModified){
+		if(!url.equals(this.properties.getProperty(PROPERTIES_URL))
+				|| !Long.toString(length).equals(this.properties.getProperty(PROPERTIES_LENGTH))){
+			return false;
+		}
+		if(etag != null){
+			return etag.equals(this.properties.getProperty(PROPERTIES_ETAG));
+		}
+		return lastModified != null && lastModified.equals(this.properties.getProperty(PROPERTIES_LAST_MODIFIED));
+	}
+
+	/**
+	 * @return faixas [incio, fim] pendentes ou null se o '.part' foi gravado sequencialmente
+	 */
+	List<long[]> getRanges(){
+		String value = this.properties.getProperty(PROPERTIES_RANGES);
+		if(value == null){
+			return null;
+		}
+		List<long[]> ranges = new ArrayList<long[]>();
+		if(!"".equals(value)){
+			for(String range : value.split(",")){
+				int index = range.indexOf('-');
+				ranges.add(new long[]{Long.parseLong(range.substring(0, index)), Long.parseLong(range.substring(index + 1))});
+			}
+		}
+		return ranges;
+	}
+
+	void reset(String url, long length, String etag, String lastModified){
+		this.properties.clear();
+		this.properties.setProperty(PROPERTIES_URL, url);
+		this.properties.setProperty(PROPERTIES_LENGTH, Long.toString(length));
+		if(etag != null){
+			this.properties.setProperty(PROPERTIES_ETAG, etag);
+		}
+		if(lastModified != null){
+			this.properties.setProperty(PROPERTIES_LAST_MODIFIED, lastModified);
+		}
+	}
+
+	/**
+	 * @param ranges faixas pendentes ou null para download sequencial
+	 */
+	void setRanges(List<long[]> ranges){
+		if(ranges == null){
+			this.properties.remove(PROPERTIES_RANGES);
+			return;
+		}
+		StringBuilder value = new StringBuilder();
+		for(long[] range : ranges){
+			if(value.length() > 0){
+				value.append(',');
+			}
+			value.append(range[0]).append('-').append(range[1]);
+		}
+		this.properties.setProperty(PROPERTIES_RANGES, value.toString());
+	}
+
+	/**
+	 * Erros de gravao so apenas registrados, sem checkpoint o download recomea do incio na prxima tentativa.
+	 */
+	void store(){
+		OutputStream os = null;
+		try {
+			os = new FileOutputStream(this.checkpointFile);
+			this.properties.store(os, "DownloadCheckpoint");
+		} catch (IOException e) {
+			logger.error("Erro ao gravar '" + this.checkpointFile.getAbsolutePath() + "': " + e.getMessage());
+		} finally {
+			close(os);
+		}
+	}
+
+	void delete(){
+		if(this.checkpointFile.exists() && !this.checkpointFile.delete()){
+			logger.error("No foi possvel remover '" + this.checkpointFile.getAbsolutePath() + "'.");
+		}
+	}
+
+	private void close(Closeable closeable) {
+		if(closeable != null){
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				logger.error("Problemas ao liberar recursos: " + e.getMessage());
+			}
+		}
+	}
+}
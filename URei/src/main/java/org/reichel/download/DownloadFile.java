@@ -2,27 +2,58 @@ package org.reichel.download;
 
 import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLDecoder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.log4j.Logger;
 import org.reichel.command.output.Output;
+import org.reichel.file.HashAlgorithmEnum;
+import org.reichel.file.Hasher;
+import org.reichel.jar.ExtractResult;
+import org.reichel.jar.JarUtils;
 
 public class DownloadFile {
 
 	private static final Logger logger = Logger.getLogger(DownloadFile.class);
 	
+	/** Tamanho mnimo de cada segmento no download segmentado. */
+	public static final int MIN_SEGMENT_SIZE = 256 * 1024;
+	
+	/** Extenso do arquivo gravado durante o download, renomeado para o nome final ao trmino. */
+	public static final String PART_EXTENSION = ".part";
+	
+	/** Extenso do DownloadCheckpoint gravado ao lado do arquivo '.part'. */
+	public static final String CHECKPOINT_EXTENSION = ".checkpoint";
+	
+	/** Quantidade mxima de bytes por chamada a FileChannel.transferTo na cpia de arquivos locais. */
+	public static final int TRANSFER_SIZE = 8 * 1024 * 1024;
+	
+	/** Intervalo padro entre chamadas ao ProgressListener, em milissegundos. */
+	public static final long DEFAULT_PROGRESS_INTERVAL = 100;
+	
+	/** Intervalo mximo entre tentativas, em milissegundos. */
+	public static final long MAX_RETRY_DELAY = 60 * 1000;
+	
 	private final String remoteTargetFolder;
 	
 	private URL url;
@@ -31,6 +62,20 @@ public class DownloadFile {
 	
 	private final Output<Integer> output;
 	
+	private final ProgressListener progressListener;
+	
+	private long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+	
+	private long progressBytes = 0;
+	
+	private Progress progress;
+	
+	private DownloadCache cache = null;
+	
+	private boolean conditional = false;
+	
+	private boolean notModified = false;
+	
 	private Integer fileLength;
 	
 	private Boolean connected = false;
@@ -41,8 +86,36 @@ public class DownloadFile {
 	
 	private Integer timeout = 1000;
 	
+	private ExtractResult extractResult;
+	
+	private Integer segments = null;
+	
+	private ExecutorService executorService = null;
+	
+	private Integer retries = 0;
+	
+	private Integer retryDelay = 1000;
+	
+	private HashAlgorithmEnum hashAlgorithmEnum = null;
+	
+	private String expectedDigest = null;
+	
+	private Hasher hasher;
+	
+	private String digest;
+	
+	private BandwidthLimiter limiter = null;
+	
+	private int priority = 0;
+	
+	private boolean hardLink = false;
+	
+	/**
+	 * O Output recebe a quantidade de bytes transferidos desde a chamada anterior, atravs de um OutputProgressListener.
+	 */
 	public DownloadFile(Output<Integer> output, String path, Charset charset) throws UnsupportedEncodingException{
 		this.output = output;
+		this.progressListener = null;
 		this.remoteTargetFolder = URLDecoder.decode(path, charset.name());
 	}
 	
@@ -50,17 +123,41 @@ public class DownloadFile {
 		this(output, remoteTargetFolder, Charset.forName("UTF-8"));
 	}
 	
+	public DownloadFile(ProgressListener progressListener, String path, Charset charset) throws UnsupportedEncodingException{
+		if(progressListener == null){
+			throw new IllegalArgumentException("Parametro progressListener no pode ser nulo.");
+		}
+		this.output = null;
+		this.progressListener = progressListener;
+		this.remoteTargetFolder = URLDecoder.decode(path, charset.name());
+	}
+	
+	public DownloadFile(ProgressListener progressListener, String remoteTargetFolder) throws UnsupportedEncodingException{
+		this(progressListener, remoteTargetFolder, Charset.forName("UTF-8"));
+	}
+	
 	public DownloadFile connect(String fileName){
+		return connect(fileName, false);
+	}
+
+	/**
+	 * @param conditional true para enviar os cabealhos condicionais do DownloadCache, somente quando o contedo
+	 * ser gravado em arquivo e uma resposta 304 puder ser servida pelo cache
+	 */
+	private DownloadFile connect(String fileName, boolean conditional){
 		if(fileName == null || "".equals(fileName)){
 			throw new IllegalArgumentException("fileName no pode ser vazio ou nulo.");
 		}
 		this.fileName = fileName;
+		this.conditional = false;
+		this.notModified = false;
 		if(isURL(fileName)){
 			if(isConnectionOpened()){
 				this.connection.setReadTimeout(this.timeout);
 				this.connection.setUseCaches(false);
+				this.conditional = conditional && this.cache != null && this.cache.prepare(this.connection);
 				if(isConnected()){
-					this.fileLength = this.connection.getContentLength();
+					this.fileLength = this.notModified ? (int) this.cache.getSize(this.url.toString()) : this.connection.getContentLength();
 				}
 			}
 		}
@@ -71,7 +168,138 @@ public class DownloadFile {
 		this.timeout = timeout;
 		return this;
 	}
+
+	/**
+	 * Agrupa as chamadas ao ProgressListener (ou ao Output) para que no sejam feitas a cada leitura.
+	 * A chamada  feita quando qualquer um dos limites for atingido, se ambos forem 0 todas as leituras so informadas.
+	 * @param intervalMillis intervalo mnimo entre chamadas, padro DEFAULT_PROGRESS_INTERVAL, 0 para no considerar o tempo
+	 * @param bytes quantidade de bytes entre chamadas, padro 0 (no considera a quantidade)
+	 * @return A instancia de DownloadFile
+	 */
+	public DownloadFile progress(long intervalMillis, long bytes){
+		if(intervalMillis < 0 || bytes < 0){
+			throw new IllegalArgumentException("Parametros intervalMillis e bytes no podem ser negativos.");
+		}
+		this.progressInterval = intervalMillis;
+		this.progressBytes = bytes;
+		return this;
+	}
+
+	private Progress newProgress() {
+		return new Progress(this.progressListener != null ? this.progressListener : new OutputProgressListener(this.output), this.progressInterval, this.progressBytes);
+	}
+
+	/**
+	 * Utiliza um cache local nos mtodos download: uma URL em cache  requisitada com If-None-Match/If-Modified-Since
+	 * e, se o servidor responder 304, o arquivo  ligado (hard link) ou copiado do cache. Downloads com ETag ou Last-Modified so adicionados ao cache.
+	 * O mesmo DownloadCache pode ser compartilhado entre instncias e threads.
+	 * @param cache cache a ser utilizado ou null para desativar
+	 * @return A instancia de DownloadFile
+	 */
+	public DownloadFile cache(DownloadCache cache){
+		this.cache = cache;
+		return this;
+	}
+
+	/**
+	 * Quantidade de novas tentativas quando o download falhar. Cada tentativa reconecta e, se o servidor permitir,
+	 * retoma o arquivo '.part' a partir do ponto em que parou.
+	 * @param retries quantidade de novas tentativas, null ou 0 para no tentar novamente
+	 * @return A instancia de DownloadFile
+	 */
+	public DownloadFile retries(Integer retries){
+		this.retries = retries;
+		return this;
+	}
+
+	/**
+	 * @param retryDelay espera em milissegundos antes da primeira nova tentativa, dobrada a cada tentativa at MAX_RETRY_DELAY
+	 * @return A instancia de DownloadFile
+	 */
+	public DownloadFile retryDelay(Integer retryDelay){
+		if(retryDelay == null || retryDelay < 0){
+			throw new IllegalArgumentException("Parametro retryDelay no pode ser nulo ou negativo.");
+		}
+		this.retryDelay = retryDelay;
+		return this;
+	}
 	
+	/**
+	 * Ativa o download segmentado: quando a conexo for HTTP, o tamanho for conhecido e o servidor responder 'Accept-Ranges: bytes',
+	 * o arquivo  baixado em at segments requisies Range simultneas, com no mnimo MIN_SEGMENT_SIZE bytes cada.
+	 * Caso contrrio o download  feito em um nico stream.
+	 * O Output recebe os bytes de todos os segmentos, uma chamada por vez.
+	 * @param segments quantidade mxima de segmentos, null ou menor que 2 desativa o download segmentado
+	 * @return A instancia de DownloadFile
+	 */
+	public DownloadFile segments(Integer segments){
+		this.segments = segments;
+		return this;
+	}
+
+	/**
+	 * @param executorService executor utilizado pelo download segmentado, no  finalizado por DownloadFile.
+	 * Se no for informado  criado um executor por download.
+	 * @return A instancia de DownloadFile
+	 */
+	public DownloadFile executor(ExecutorService executorService){
+		this.executorService = executorService;
+		return this;
+	}
+	
+	/**
+	 * Limita a banda das leituras da conexo, inclusive dos segmentos e de {@link #getInputStream(String)}.
+	 * Cpias de arquivos locais ('file:') no so limitadas.
+	 * @param limiter BandwidthLimiter, normalmente compartilhado entre todos os downloads, ou null para no limitar
+	 * @return A instancia de DownloadFile
+	 * @see BandwidthLimiter#getShared()
+	 */
+	public DownloadFile limiter(BandwidthLimiter limiter){
+		this.limiter = limiter;
+		return this;
+	}
+
+	/**
+	 * @param priority prioridade das leituras no BandwidthLimiter, enquanto downloads de maior prioridade aguardam banda
+	 * os de menor prioridade no consomem, padro 0
+	 * @return A instancia de DownloadFile
+	 */
+	public DownloadFile priority(int priority){
+		this.priority = priority;
+		return this;
+	}
+
+	/**
+	 * Em downloads de arquivos locais ('file:') no mesmo sistema de arquivos do destino, cria um hard link para a origem
+	 * em vez de copiar o contedo. O arquivo de destino passa a compartilhar o contedo com a origem, por isso no deve ser
+	 * alterado no lugar. Se o link no puder ser criado o arquivo  copiado.
+	 * @param hardLink true para criar hard links, padro false
+	 * @return A instancia de DownloadFile
+	 */
+	public DownloadFile hardLink(boolean hardLink){
+		this.hardLink = hardLink;
+		return this;
+	}
+
+	/**
+	 * Calcula o hash do contedo enquanto ele  gravado, disponvel em {@link #getDigest()} aps o download.
+	 * Se expectedDigest for informado o arquivo s  renomeado para o destino quando o hash conferir, caso contrrio
+	 * o '.part'  removido e  lanada ChecksumException (sujeita s tentativas de {@link #retries(Integer)}).
+	 * No download em um nico stream o hash  calculado sobre os bytes recebidos, lendo do disco somente o trecho
+	 * j gravado quando o download  retomado; nos downloads segmentados, de arquivos locais e do cache o '.part'  lido ao final.
+	 * @param hashAlgorithmEnum algoritmo do hash ou null para no calcular
+	 * @param expectedDigest hash esperado em hexadecimal ou null para somente calcular, vale para os prximos downloads desta instncia
+	 * @return A instancia de DownloadFile
+	 */
+	public DownloadFile checksum(HashAlgorithmEnum hashAlgorithmEnum, String expectedDigest){
+		if(hashAlgorithmEnum == null && expectedDigest != null){
+			throw new IllegalArgumentException("Parametro hashAlgorithmEnum no pode ser nulo quando expectedDigest for informado.");
+		}
+		this.hashAlgorithmEnum = hashAlgorithmEnum;
+		this.expectedDigest = expectedDigest;
+		return this;
+	}
+
 	private boolean isURL(String fileName) {
 		try {
 			this.url = new URL(this.remoteTargetFolder + "/" + fileName);
@@ -86,8 +314,12 @@ public class DownloadFile {
 		try {
 			this.connection.connect();
 			if(this.connection instanceof HttpURLConnection){
-				if(HttpURLConnection.HTTP_OK == ((HttpURLConnection) this.connection).getResponseCode()){
+				int responseCode = ((HttpURLConnection) this.connection).getResponseCode();
+				if(HttpURLConnection.HTTP_OK == responseCode){
+					this.connected = true;
+				} else if(HttpURLConnection.HTTP_NOT_MODIFIED == responseCode && this.conditional){
 					this.connected = true;
+					this.notModified = true;
 				} else {
 					this.connected = false;
 				}
@@ -121,7 +353,7 @@ public class DownloadFile {
 	 */
 	public InputStream getInputStream(String fileName) throws IOException{
 		connect(fileName);
-		return this.connection.getInputStream();
+		return ThrottledInputStream.wrap(this.connection.getInputStream(), this.limiter, this.priority);
 	}
 	
 	public DownloadFile download(String fileName, String targetFolderPath) throws IOException{
@@ -130,13 +362,129 @@ public class DownloadFile {
 				throw new IllegalArgumentException("fileName: '" + fileName + "' no  o mesmo que this.fileName: '" + this.fileName + "' utilize o mtodo connect para atualizar o fileName.");
 			}
 		} else {
-			connect(fileName);
+			connect(fileName, true);
 		}
 		saveFile(prepareTargetFolder(fileName, targetFolderPath));
 		this.connected = false;
 		return this;
 	}
 
+	/**
+	 * Atualiza um jar baixando somente o patch gerado por {@link JarUtils#createPatch(String, String, String)} a partir de
+	 * previousJarFilePath, publicado ao lado do jar com o nome {@link JarUtils#getPatchName(String, String)}.
+	 * Se previousJarFilePath no existir, o patch no estiver publicado ou no puder ser aplicado,  feito o download completo.
+	 * O jar reconstrudo tem o mesmo contedo do publicado mas no os mesmos bytes, por isso  conferido pelo CRC-32 de cada entrada
+	 * e o hash de {@link #checksum(HashAlgorithmEnum, String)}  aplicado somente ao download completo.
+	 * exemplo:
+	 * <pre>
+	 * new DownloadFile(new SystemOutPrintOutputIntegerImpl(), "http://servidor/jars")
+	 *     .downloadPatch("lib/app.jar", "d:\\deploy", "d:\\deploy\\lib\\app.jar");
+	 * </pre>
+	 * @param fileName caminho do arquivo jar
+	 * @param targetFolderPath diretrio onde o jar ser gravado
+	 * @param previousJarFilePath jar da verso anterior disponvel localmente, pode ser o prprio jar de destino ou null
+	 * @return A instancia de DownloadFile, o jar atualizado fica em {@link #getDownloadedFile()}
+	 * @throws IOException caso o download completo falhe
+	 */
+	public DownloadFile downloadPatch(String fileName, String targetFolderPath, String previousJarFilePath) throws IOException{
+		if(fileName == null || "".equals(fileName)){
+			throw new IllegalArgumentException("Parametro fileName no pode ser vazio ou nulo.");
+		}
+		String targetFilePath = prepareTargetFolder(fileName, targetFolderPath);
+		if(previousJarFilePath != null && new File(previousJarFilePath).isFile()){
+			String patchFilePath = targetFilePath + JarUtils.PATCH_EXTENSION;
+			HashAlgorithmEnum hashAlgorithmEnum = this.hashAlgorithmEnum;
+			String expectedDigest = this.expectedDigest;
+			this.hashAlgorithmEnum = null;
+			this.expectedDigest = null;
+			try {
+				JarUtils jarUtils = new JarUtils();
+				connect(jarUtils.getPatchName(fileName, previousJarFilePath), true);
+				if(this.connected){
+					saveFile(patchFilePath);
+					jarUtils.applyPatch(previousJarFilePath, patchFilePath, targetFilePath);
+					this.downloadedFile = new File(targetFilePath);
+					return this;
+				}
+				logger.info("Patch no publicado para '" + fileName + "', ser feito o download completo.");
+			} catch (IOException e) {
+				logger.warn("No foi possvel atualizar '" + fileName + "' por patch, ser feito o download completo: " + e.getMessage());
+			} finally {
+				this.hashAlgorithmEnum = hashAlgorithmEnum;
+				this.expectedDigest = expectedDigest;
+				this.connected = false;
+				if(new File(patchFilePath).exists() && !new File(patchFilePath).delete()){
+					logger.error("No foi possvel remover '" + patchFilePath + "'.");
+				}
+			}
+		}
+		connect(fileName, true);
+		saveFile(targetFilePath);
+		this.connected = false;
+		return this;
+	}
+
+	/**
+	 * Faz o download de um jar extraindo os arquivos  medida que os bytes chegam pela conexo, sem gravar e reler o jar do disco.
+	 * Se cacheFolderPath for informado os bytes recebidos tambm so gravados em cacheFolderPath/fileName
+	 * (disponvel em {@link #getDownloadedFile()}), arquivo que  removido caso a extrao falhe.
+	 * exemplo:
+	 * <pre>
+	 * new DownloadFile(new SystemOutPrintOutputIntegerImpl(), "http://servidor/jars")
+	 *     .downloadAndExtract("ambiente-config.jar", "d:\\deploy\\ambiente-config", false, "d:\\cache");
+	 * </pre>
+	 * @param fileName caminho do arquivo jar
+	 * @param targetFolderPath diretrio onde os arquivos do jar sero extrados
+	 * @param extractMetaInf false para no extrair os caminhos que contiverem o nome META-INF
+	 * @param cacheFolderPath diretrio onde o jar ser gravado ou null para no grav-lo
+	 * @return A instancia de DownloadFile, o resultado da extrao fica em {@link #getExtractResult()}
+	 * @throws IOException caso algum problema ocorra ao ler da conexo ou ao gravar o jar no cache
+	 */
+	public DownloadFile downloadAndExtract(String fileName, String targetFolderPath, boolean extractMetaInf, String cacheFolderPath) throws IOException{
+		if(this.connected){
+			if(!this.fileName.equals(fileName)){
+				throw new IllegalArgumentException("fileName: '" + fileName + "' no  o mesmo que this.fileName: '" + this.fileName + "' utilize o mtodo connect para atualizar o fileName.");
+			}
+		} else {
+			connect(fileName);
+		}
+		File cacheFile = null;
+		OutputStream cacheOutputStream = null;
+		if(cacheFolderPath != null){
+			cacheFile = new File(prepareTargetFolder(fileName, cacheFolderPath));
+			cacheOutputStream = new FileOutputStream(cacheFile);
+		}
+		boolean success = false;
+		this.progress = newProgress();
+		if(this.fileLength != null){
+			this.progress.remaining(this.fileLength);
+		}
+		try {
+			InputStream is = new BufferedInputStream(new TeeInputStream(ThrottledInputStream.wrap(this.connection.getInputStream(), this.limiter, this.priority), cacheOutputStream, this.progress), 64 * 1024);
+			this.extractResult = new JarUtils().extractFilesFromStream(is, targetFolderPath, extractMetaInf);
+			// o diretrio central do zip no  lido pelo ZipInputStream, mas precisa chegar ao jar do cache
+			byte[] buffer = new byte[4096];
+			while(is.read(buffer) != -1);
+			success = true;
+		} finally {
+			if(cacheOutputStream != null){
+				try {
+					cacheOutputStream.close();
+				} catch (IOException e) {
+					success = false;
+					logger.error("Problemas ao gravar '" + cacheFile + "': " + e.getMessage());
+				}
+				if(!success && !cacheFile.delete()){
+					logger.error("No foi possvel remover '" + cacheFile + "'.");
+				}
+			}
+			this.progress.finish();
+			disconnect();
+			this.connected = false;
+		}
+		return this;
+	}
+	
 	public DownloadFile disconnect() throws IOException{
 		if(this.connected){
 			try {
@@ -187,22 +535,372 @@ public class DownloadFile {
 	}
 
 	private void saveFile(String targetFilePath) throws FileNotFoundException, IOException {
-		FileOutputStream fos = new FileOutputStream(new File(targetFilePath));
-		BufferedInputStream bufferedInputStream = new BufferedInputStream(this.connection.getInputStream());
-		byte[] buffer = new byte[4096];
-		Integer bytes;
-		while((bytes = bufferedInputStream.read(buffer)) != -1){
-			fos.write(buffer, 0, bytes);
-			this.output.output(bytes);
-		}
-		fos.close();
+		this.progress = newProgress();
+		try {
+			int attempt = 0;
+			while(true){
+				try {
+					saveAttempt(targetFilePath);
+					return;
+				} catch (IOException e) {
+					if(this.retries == null || attempt >= this.retries
+							|| (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException))){
+						throw e;
+					}
+					long delay = Math.min(MAX_RETRY_DELAY, (long) this.retryDelay << Math.min(attempt, 16));
+					attempt++;
+					logger.warn("Falha no download de '" + this.url + "', tentativa " + attempt + " de " + this.retries + " em " + delay + "ms: " + e.getMessage());
+					try {
+						Thread.sleep(delay);
+					} catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Download interrompido: " + this.url);
+					}
+					connect(this.fileName, true);
+				}
+			}
+		} finally {
+			this.progress.finish();
+		}
+	}
+
+	/**
+	 * Grava em '&lt;targetFilePath&gt;.part' e renomeia para targetFilePath ao final.
+	 * Quando a conexo  HTTP, o tamanho  conhecido e a resposta possui ETag ou Last-Modified, o DownloadCheckpoint
+	 * permite retomar um '.part' de uma tentativa anterior, desde que os validadores no tenham mudado.
+	 */
+	private void saveAttempt(String targetFilePath) throws FileNotFoundException, IOException {
+		if(!this.connected){
+			// sem conexo os validadores no podem ser conferidos, o '.part' de tentativas anteriores  preservado
+			if(this.connection instanceof HttpURLConnection && ((HttpURLConnection) this.connection).getResponseCode() > 0){
+				throw new IOException("No foi possvel conectar-se a '" + this.url + "', cdigo de resposta: " + ((HttpURLConnection) this.connection).getResponseCode());
+			}
+			throw new IOException("No foi possvel conectar-se a '" + this.url + "'.");
+		}
+		File partFile = new File(targetFilePath + PART_EXTENSION);
+		DownloadCheckpoint checkpoint = new DownloadCheckpoint(new File(targetFilePath + PART_EXTENSION + CHECKPOINT_EXTENSION));
+		this.hasher = this.hashAlgorithmEnum != null ? Hasher.newHasher(this.hashAlgorithmEnum) : null;
+		this.digest = null;
+		if(this.notModified){
+			File cachedFile = this.cache.hit(this.url.toString());
+			if(cachedFile == null){
+				throw new IOException("Contedo de '" + this.url + "' removido do cache.");
+			}
+			saveLocal(cachedFile, partFile, true);
+			try {
+				verify(partFile, false, checkpoint);
+			} catch (ChecksumException e) {
+				// sem a entrada a prxima tentativa no envia cabealhos condicionais e baixa do servidor
+				this.cache.invalidate(this.url.toString());
+				throw e;
+			}
+			rename(partFile, new File(targetFilePath));
+			checkpoint.delete();
+			return;
+		}
+		String etag = this.connection.getHeaderField("ETag");
+		String lastModified = this.connection.getHeaderField("Last-Modified");
+		boolean resumable = this.connection instanceof HttpURLConnection && this.fileLength != null && this.fileLength > 0
+				&& (etag != null || lastModified != null);
+		if(!resumable || !partFile.exists() || !checkpoint.matches(this.url.toString(), this.fileLength, etag, lastModified)){
+			checkpoint.reset(this.url.toString(), this.fileLength == null ? -1 : this.fileLength, etag, lastModified);
+			deletePartFile(partFile);
+		}
+		String ifRange = resumable ? (etag != null ? etag : lastModified) : null;
+		List<long[]> ranges = checkpoint.getRanges();
+		int segments = getSegments();
+		File localFile = getLocalFile();
+		boolean saved = false;
+		if(localFile != null){
+			saveLocal(localFile, partFile, this.hardLink);
+			saved = true;
+		} else if(ranges != null || (segments > 1 && !partFile.exists())){
+			if(ranges == null){
+				ranges = SegmentedDownload.split(this.fileLength, segments);
+			}
+			saved = ranges.isEmpty() || saveSegments(partFile, ranges, checkpoint, resumable, ifRange);
+			if(!saved){
+				checkpoint.setRanges(null);
+				deletePartFile(partFile);
+				reconnect();
+			}
+		}
+		if(!saved){
+			saveStream(partFile, checkpoint, resumable, ifRange);
+		}
+		verify(partFile, !saved, checkpoint);
+		File targetFile = new File(targetFilePath);
+		rename(partFile, targetFile);
+		checkpoint.delete();
+		if(this.cache != null && this.connection instanceof HttpURLConnection){
+			this.cache.miss();
+			if(etag != null || lastModified != null){
+				try {
+					this.cache.put(this.url.toString(), targetFile, etag, lastModified);
+				} catch (IOException e) {
+					logger.error("Problemas ao adicionar '" + this.url + "' ao cache: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Confere o hash do '.part' antes de renome-lo, removendo o '.part' e o checkpoint se no conferir.
+	 * @param hashed true se o hasher recebeu todo o contedo durante a gravao, false para ler o '.part' do disco
+	 */
+	private void verify(File partFile, boolean hashed, DownloadCheckpoint checkpoint) throws IOException {
+		if(this.hasher == null){
+			return;
+		}
+		if(!hashed){
+			hash(partFile, partFile.length());
+		}
+		this.digest = this.hasher.digest();
+		if(this.expectedDigest != null && !this.expectedDigest.equalsIgnoreCase(this.digest)){
+			deletePartFile(partFile);
+			checkpoint.delete();
+			throw new ChecksumException(this.url.toString(), this.expectedDigest, this.digest);
+		}
+	}
+
+	/**
+	 * Atualiza o hasher com os primeiros length bytes do arquivo.
+	 */
+	private void hash(File file, long length) throws IOException {
+		FileInputStream fis = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[64 * 1024];
+			long remaining = length;
+			int bytes;
+			while(remaining > 0 && (bytes = fis.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1){
+				this.hasher.update(buffer, 0, bytes);
+				remaining -= bytes;
+			}
+		} finally {
+			fis.close();
+		}
+	}
+
+	private void rename(File partFile, File targetFile) throws IOException {
+		if(!partFile.renameTo(targetFile)){
+			// Windows no substitui o destino no renameTo
+			if(!targetFile.exists() || !targetFile.delete() || !partFile.renameTo(targetFile)){
+				throw new IOException("No foi possvel renomear '" + partFile.getAbsolutePath() + "' para '" + targetFile.getAbsolutePath() + "'.");
+			}
+		}
+	}
+
+	/**
+	 * @return arquivo de origem quando a URL for 'file:' e apontar para um arquivo existente, null caso contrrio
+	 */
+	private File getLocalFile() {
+		if(!"file".equalsIgnoreCase(this.url.getProtocol())){
+			return null;
+		}
+		File file;
+		try {
+			file = new File(this.url.toURI());
+		} catch (URISyntaxException e) {
+			file = new File(this.url.getPath());
+		} catch (IllegalArgumentException e) {
+			file = new File(this.url.getPath());
+		}
+		return file.isFile() ? file : null;
+	}
+
+	/**
+	 * Cpia de um arquivo local (mirror local ou montado via NFS) atravs de FileChannel.transferTo, que permite ao sistema operacional
+	 * copiar sem passar os bytes pela heap (sendfile/copy_file_range). O Output  informado a cada TRANSFER_SIZE bytes.
+	 * @param link true para tentar antes um hard link, informado ao Output com o tamanho do arquivo
+	 */
+	private void saveLocal(File localFile, File partFile, boolean link) throws IOException {
+		if(link && link(localFile, partFile)){
+			long size = partFile.length();
+			this.progress.remaining(size);
+			this.progress.add(size);
+			disconnect();
+			return;
+		}
+		FileInputStream fis = new FileInputStream(localFile);
+		try {
+			FileOutputStream fos = new FileOutputStream(partFile);
+			try {
+				FileChannel source = fis.getChannel();
+				FileChannel target = fos.getChannel();
+				long size = source.size();
+				long position = 0;
+				this.progress.remaining(size);
+				while(position < size){
+					long bytes = source.transferTo(position, Math.min(TRANSFER_SIZE, size - position), target);
+					if(bytes <= 0){
+						break;
+					}
+					position += bytes;
+					this.progress.add(bytes);
+				}
+			} finally {
+				fos.close();
+			}
+		} finally {
+			fis.close();
+		}
+		disconnect();
+		if(this.fileLength != null && this.fileLength >= 0 && partFile.length() != this.fileLength){
+			throw new IOException("Cpia incompleta de '" + localFile.getAbsolutePath() + "': " + partFile.length() + " de " + this.fileLength + " bytes.");
+		}
+	}
+
+	/**
+	 * @return true se partFile passou a ser um hard link para localFile, false se estiverem em sistemas de arquivos
+	 * diferentes ou o link no puder ser criado
+	 */
+	private boolean link(File localFile, File partFile) {
+		try {
+			if(!Files.getFileStore(localFile.toPath()).equals(Files.getFileStore(partFile.getAbsoluteFile().getParentFile().toPath()))){
+				return false;
+			}
+			deletePartFile(partFile);
+			Files.createLink(partFile.toPath(), localFile.toPath());
+			return true;
+		} catch (IOException e) {
+			logger.debug("Hard link de '" + localFile.getAbsolutePath() + "' no criado, copiando: " + e.getMessage());
+		} catch (UnsupportedOperationException e) {
+			logger.debug("Hard link no suportado para '" + localFile.getAbsolutePath() + "', copiando: " + e.getMessage());
+		} catch (SecurityException e) {
+			logger.debug("Hard link de '" + localFile.getAbsolutePath() + "' no permitido, copiando: " + e.getMessage());
+		}
+		return false;
+	}
+
+	private void saveStream(File partFile, DownloadCheckpoint checkpoint, boolean resumable, String ifRange) throws IOException {
+		long position = partFile.exists() ? partFile.length() : 0;
+		if(position > 0 && !resumeStream(position, ifRange)){
+			position = 0;
+			reconnect();
+		}
+		if(position == 0 && resumable){
+			checkpoint.store();
+		}
+		if(position > 0 && this.hasher != null){
+			hash(partFile, position);
+		}
+		if(this.fileLength != null && this.fileLength >= 0){
+			this.progress.remaining(this.fileLength - position);
+		}
+		FileOutputStream fos = new FileOutputStream(partFile, position > 0);
+		try {
+			BufferedInputStream bufferedInputStream = new BufferedInputStream(ThrottledInputStream.wrap(this.connection.getInputStream(), this.limiter, this.priority));
+			byte[] buffer = new byte[4096];
+			int bytes;
+			while((bytes = bufferedInputStream.read(buffer)) != -1){
+				fos.write(buffer, 0, bytes);
+				if(this.hasher != null){
+					this.hasher.update(buffer, 0, bytes);
+				}
+				this.progress.add(bytes);
+			}
+		} finally {
+			fos.close();
+		}
 		disconnect();
+		if(this.fileLength != null && this.fileLength >= 0 && partFile.length() != this.fileLength){
+			throw new IOException("Download incompleto de '" + this.url + "': " + partFile.length() + " de " + this.fileLength + " bytes.");
+		}
+	}
+
+	/**
+	 * Substitui a conexo atual por uma requisio 'Range: bytes=position-' condicionada por If-Range.
+	 * @return false se o servidor no respondeu 206, neste caso o '.part' deve ser regravado desde o incio
+	 */
+	private boolean resumeStream(long position, String ifRange) throws IOException {
+		((HttpURLConnection) this.connection).disconnect();
+		this.connected = false;
+		HttpURLConnection connection = (HttpURLConnection) this.url.openConnection();
+		connection.setReadTimeout(this.timeout);
+		connection.setUseCaches(false);
+		connection.setRequestProperty("Range", "bytes=" + position + "-");
+		connection.setRequestProperty("If-Range", ifRange);
+		if(connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL){
+			logger.info("No foi possvel retomar '" + this.url + "', cdigo de resposta: " + connection.getResponseCode());
+			connection.disconnect();
+			return false;
+		}
+		logger.info("Retomando download de '" + this.url + "' a partir do byte " + position + ".");
+		this.connection = connection;
+		this.connected = true;
+		return true;
+	}
+
+	private void reconnect() throws IOException {
+		connect(this.fileName);
+		if(!this.connected){
+			throw new IOException("No foi possvel reconectar-se a '" + this.url + "'.");
+		}
+	}
+
+	private void deletePartFile(File partFile) throws IOException {
+		if(partFile.exists() && !partFile.delete()){
+			throw new IOException("No foi possvel remover '" + partFile.getAbsolutePath() + "'.");
+		}
+	}
+
+	/**
+	 * @return quantidade de segmentos a ser utilizada no download da conexo atual, 1 para um nico stream
+	 */
+	private int getSegments() {
+		if(this.segments == null || this.segments < 2 || !(this.connection instanceof HttpURLConnection)
+				|| this.fileLength == null || this.fileLength <= 0
+				|| !"bytes".equalsIgnoreCase(this.connection.getHeaderField("Accept-Ranges"))){
+			return 1;
+		}
+		return Math.min(this.segments, Math.max(1, this.fileLength / MIN_SEGMENT_SIZE));
+	}
+
+	/**
+	 * Em caso de falha as faixas ainda no gravadas ficam no checkpoint para a prxima tentativa.
+	 * @return false se o servidor no aceitou a requisio Range
+	 */
+	private boolean saveSegments(File partFile, List<long[]> ranges, DownloadCheckpoint checkpoint, boolean resumable, String ifRange) throws IOException {
+		((HttpURLConnection) this.connection).disconnect();
+		this.connected = false;
+		if(resumable){
+			checkpoint.setRanges(ranges);
+			checkpoint.store();
+		}
+		long remaining = 0;
+		for(long[] range : ranges){
+			remaining += range[1] - range[0] + 1;
+		}
+		this.progress.remaining(remaining);
+		SegmentedDownload segmentedDownload = new SegmentedDownload(this.url, this.fileLength, this.timeout, this.progress, ifRange)
+				.limiter(this.limiter, this.priority);
+		ExecutorService executorService = this.executorService != null ? this.executorService : Executors.newFixedThreadPool(ranges.size());
+		try {
+			return segmentedDownload.download(partFile.getPath(), ranges, executorService);
+		} catch (IOException e) {
+			if(resumable){
+				checkpoint.setRanges(segmentedDownload.getRemaining());
+				checkpoint.store();
+			}
+			throw e;
+		} finally {
+			if(executorService != this.executorService){
+				executorService.shutdownNow();
+			}
+		}
 	}
 	
 	public Integer getFileLength() {
 		return fileLength;
 	}
 
+	/**
+	 * @return hash em hexadecimal do ltimo arquivo gravado, quando {@link #checksum(HashAlgorithmEnum, String)} for informado
+	 */
+	public String getDigest() {
+		return digest;
+	}
+
 	public Boolean getConnected() {
 		return connected;
 	}
@@ -211,6 +909,10 @@ public class DownloadFile {
 		return downloadedFile;
 	}
 
+	public ExtractResult getExtractResult() {
+		return extractResult;
+	}
+
 	public String getRemoteTargetFolder() {
 		return remoteTargetFolder;
 	}
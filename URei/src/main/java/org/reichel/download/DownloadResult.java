@@ -0,0 +1,88 @@
+package org.reichel.download;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Resultado imutvel do download de um arquivo de um BatchDownload ou AsyncDownload.
+ * @author Markus Reichel
+ * @see BatchDownload
+ * @see AsyncDownload
+ */
+public class DownloadResult {
+
+	private final String fileName;
+
+	private final File downloadedFile;
+
+	private final long bytes;
+
+	private final long elapsed;
+
+	private final IOException error;
+
+	private final String digest;
+
+	DownloadResult(String fileName, File downloadedFile, long bytes, long elapsed, IOException error){
+		this(fileName, downloadedFile, bytes, elapsed, error, null);
+	}
+
+	DownloadResult(String fileName, File downloadedFile, long bytes, long elapsed, IOException error, String digest){
+		this.fileName = fileName;
+		this.downloadedFile = downloadedFile;
+		this.bytes = bytes;
+		this.elapsed = elapsed;
+		this.error = error;
+		this.digest = digest;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * @return arquivo gravado, conforme {@link DownloadFile#getDownloadedFile()}
+	 */
+	public File getDownloadedFile() {
+		return downloadedFile;
+	}
+
+	/**
+	 * @return quantidade de bytes recebidos, incluindo os de tentativas que falharam
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return tempo do download em milissegundos
+	 */
+	public long getElapsed() {
+		return elapsed;
+	}
+
+	/**
+	 * @return erro do download ou null se foi concludo
+	 */
+	public IOException getError() {
+		return error;
+	}
+
+	/**
+	 * @return hash em hexadecimal do contedo recebido, calculado pelo AsyncDownload ou por um DownloadFile com algoritmo informado, ou null
+	 * @see AsyncDownload#algorithm(org.reichel.file.HashAlgorithmEnum)
+	 * @see DownloadFile#checksum(org.reichel.file.HashAlgorithmEnum, String)
+	 */
+	public String getDigest() {
+		return digest;
+	}
+
+	public boolean isSuccess(){
+		return error == null;
+	}
+
+	@Override
+	public String toString(){
+		return fileName + " bytes=" + bytes + " elapsed=" + elapsed + "ms" + (digest != null ? " digest=" + digest : "") + (error != null ? " error=" + error.getMessage() : "");
+	}
+}
@@ -0,0 +1,34 @@
+package org.reichel.download;
+
+import org.reichel.command.output.Output;
+
+/**
+ * Adaptador que informa a um Output&lt;Integer&gt; a quantidade de bytes transferidos desde a chamada anterior,
+ * mantendo o comportamento dos Outputs existentes: a soma dos valores informados  o total transferido.
+ * Deve ser utilizada uma instncia por download.
+ * @author Markus Reichel
+ */
+public class OutputProgressListener implements ProgressListener {
+
+	private final Output<Integer> output;
+
+	private long reported = 0;
+
+	public OutputProgressListener(Output<Integer> output){
+		if(output == null){
+			throw new IllegalArgumentException("Parametro output no pode ser nulo.");
+		}
+		this.output = output;
+	}
+
+	@Override
+	public void progress(long transferred, long total, long bytesPerSecond, long remainingMillis) {
+		long bytes = transferred - this.reported;
+		this.reported = transferred;
+		while(bytes > 0){
+			int chunk = (int) Math.min(bytes, Integer.MAX_VALUE);
+			this.output.output(chunk);
+			bytes -= chunk;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package org.reichel.download;
+
+/**
+ * Acumula os bytes transferidos em um download e chama o ProgressListener somente quando o intervalo de tempo
+ * ou a quantidade de bytes desde a ltima chamada forem atingidos. Os mtodos so sincronizados para o download segmentado.
+ * @author Markus Reichel
+ */
+class Progress {
+
+	private final ProgressListener progressListener;
+
+	private final long intervalNanos;
+
+	private final long bytes;
+
+	private final long start = System.nanoTime();
+
+	private long total = -1;
+
+	private long transferred = 0;
+
+	private long reportedBytes = 0;
+
+	private long reportedTime = start;
+
+	private boolean reported = false;
+
+	/**
+	 * @param intervalMillis intervalo mnimo entre chamadas, 0 para no considerar o tempo
+	 * @param bytes quantidade de bytes entre chamadas, 0 para no considerar a quantidade;
+	 * se ambos forem 0 todas as leituras so informadas
+	 */
+	Progress(ProgressListener progressListener, long intervalMillis, long bytes){
+		this.progressListener = progressListener;
+		this.intervalNanos = intervalMillis * 1000000L;
+		this.bytes = bytes;
+	}
+
+	/**
+	 * @param remaining bytes que ainda sero transferidos nesta tentativa, o total passa a ser o transferido at aqui mais remaining
+	 */
+	synchronized void remaining(long remaining){
+		this.total = remaining < 0 ? -1 : this.transferred + remaining;
+	}
+
+	synchronized void add(long bytes){
+		this.transferred += bytes;
+		boolean byBytes = this.bytes > 0 && this.transferred - this.reportedBytes >= this.bytes;
+		if(byBytes || this.intervalNanos <= 0 && this.bytes <= 0){
+			report(System.nanoTime());
+		} else if(this.intervalNanos > 0){
+			long now = System.nanoTime();
+			if(now - this.reportedTime >= this.intervalNanos){
+				report(now);
+			}
+		}
+	}
+
+	/**
+	 * Informa o que foi transferido desde a ltima chamada, ou o estado final se nenhuma chamada foi feita.
+	 */
+	synchronized void finish(){
+		if(!this.reported || this.transferred != this.reportedBytes){
+			report(System.nanoTime());
+		}
+	}
+
+	private void report(long now) {
+		long elapsed = now - this.start;
+		long bytesPerSecond = elapsed > 0 ? (long) (this.transferred * 1000000000d / elapsed) : 0;
+		long remainingMillis = this.total >= 0 && bytesPerSecond > 0 ? Math.max(0, this.total - this.transferred) * 1000 / bytesPerSecond : -1;
+		this.reportedBytes = this.transferred;
+		this.reportedTime = now;
+		this.reported = true;
+		this.progressListener.progress(this.transferred, this.total, bytesPerSecond, remainingMillis);
+	}
+}
@@ -0,0 +1,19 @@
+package org.reichel.download;
+
+/**
+ * Recebe o progresso de um download com valores primitivos, em chamadas agrupadas por intervalo de tempo ou quantidade de bytes.
+ * As chamadas de um mesmo download nunca so simultneas, mesmo no download segmentado.
+ * Ao trmino (ou falha) de cada download  feita uma ltima chamada com o total transferido.
+ * @author Markus Reichel
+ * @see DownloadFile#progress(long, long)
+ */
+public interface ProgressListener {
+
+	/**
+	 * @param transferred bytes transferidos desde o incio do download
+	 * @param total bytes esperados, -1 se o tamanho no for conhecido
+	 * @param bytesPerSecond vazo mdia desde o incio do download
+	 * @param remainingMillis estimativa do tempo restante em milissegundos, -1 se no puder ser calculada
+	 */
+	void progress(long transferred, long total, long bytesPerSecond, long remainingMillis);
+}
@@ -0,0 +1,227 @@
+package org.reichel.download;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Download de um arquivo HTTP em segmentos paralelos atravs de requisies com o cabealho Range.
+ * Cada segmento  gravado na sua posio do arquivo de destino atravs de um FileChannel compartilhado.
+ * O primeiro segmento  requisitado na thread chamadora: se o servidor no responder 206 (Partial Content)
+ * nenhum outro segmento  iniciado e o chamador deve utilizar o download em um nico stream.
+ * Aps uma falha {@link #getRemaining()} informa as faixas que ainda no foram gravadas, permitindo retomar o download.
+ * @author Markus Reichel
+ * @see DownloadFile#segments(Integer)
+ */
+class SegmentedDownload {
+
+	private static final Logger logger = Logger.getLogger(SegmentedDownload.class);
+
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	private final URL url;
+
+	private final long fileLength;
+
+	private final Integer timeout;
+
+	private final Progress progress;
+
+	private final String ifRange;
+
+	private BandwidthLimiter limiter = null;
+
+	private int priority = 0;
+
+	private List<long[]> ranges;
+
+	private AtomicLongArray positions;
+
+	/**
+	 * @param ifRange valor do cabealho If-Range (ETag ou Last-Modified) ou null
+	 */
+	SegmentedDownload(URL url, long fileLength, Integer timeout, Progress progress, String ifRange){
+		this.url = url;
+		this.fileLength = fileLength;
+		this.timeout = timeout;
+		this.progress = progress;
+		this.ifRange = ifRange;
+	}
+
+	SegmentedDownload limiter(BandwidthLimiter limiter, int priority){
+		this.limiter = limiter;
+		this.priority = priority;
+		return this;
+	}
+
+	/**
+	 * @return faixas [incio, fim] inclusivas que dividem o arquivo em segments partes
+	 */
+	static List<long[]> split(long fileLength, int segments){
+		List<long[]> ranges = new ArrayList<long[]>();
+		for(int segment = 0; segment < segments; segment++){
+			ranges.add(new long[]{fileLength * segment / segments, fileLength * (segment + 1) / segments - 1});
+		}
+		return ranges;
+	}
+
+	/**
+	 * @param ranges faixas [incio, fim] inclusivas a serem baixadas, cada faixa  um segmento
+	 * @return false se o servidor no respondeu 206 ao primeiro segmento, neste caso nada foi gravado em targetFilePath
+	 * @throws IOException quando algum segmento falhar
+	 */
+	boolean download(String targetFilePath, List<long[]> ranges, ExecutorService executorService) throws IOException {
+		this.ranges = ranges;
+		this.positions = new AtomicLongArray(ranges.size());
+		for(int i = 0; i < ranges.size(); i++){
+			this.positions.set(i, ranges.get(i)[0]);
+		}
+		HttpURLConnection first = openSegment(ranges.get(0)[0], ranges.get(0)[1]);
+		if(first == null){
+			return false;
+		}
+		RandomAccessFile file = new RandomAccessFile(targetFilePath, "rw");
+		try {
+			file.setLength(this.fileLength);
+			final FileChannel channel = file.getChannel();
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			futures.add(executorService.submit(new Segment(first, channel, 0)));
+			for(int segment = 1; segment < ranges.size(); segment++){
+				final int index = segment;
+				futures.add(executorService.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						long[] range = SegmentedDownload.this.ranges.get(index);
+						HttpURLConnection connection = openSegment(range[0], range[1]);
+						if(connection == null){
+							throw new IOException("Servidor no respondeu 206 para o segmento " + range[0] + "-" + range[1] + " de '" + url + "'.");
+						}
+						return new Segment(connection, channel, index).call();
+					}
+				}));
+			}
+			IOException failure = null;
+			for(Future<Void> future : futures){
+				try {
+					future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					cancel(futures);
+					throw new InterruptedIOException("Download interrompido: " + this.url);
+				} catch (CancellationException e) {
+					// segmento cancelado aps a falha de outro segmento
+				} catch (ExecutionException e) {
+					if(failure == null){
+						cancel(futures);
+						failure = e.getCause() instanceof IOException ? (IOException) e.getCause()
+								: new IOException("Problemas no download de '" + this.url + "': " + e.getCause());
+					}
+				}
+			}
+			if(failure != null){
+				throw failure;
+			}
+		} finally {
+			file.close();
+		}
+		return true;
+	}
+
+	/**
+	 * @return faixas [incio, fim] inclusivas ainda no gravadas, vazia se o download foi concludo
+	 */
+	List<long[]> getRemaining(){
+		List<long[]> remaining = new ArrayList<long[]>();
+		for(int i = 0; i < this.ranges.size(); i++){
+			long position = this.positions.get(i);
+			if(position <= this.ranges.get(i)[1]){
+				remaining.add(new long[]{position, this.ranges.get(i)[1]});
+			}
+		}
+		return remaining;
+	}
+
+	private void cancel(List<Future<Void>> futures) {
+		for(Future<Void> future : futures){
+			future.cancel(true);
+		}
+	}
+
+	/**
+	 * @return conexo com a resposta 206 do segmento ou null se o servidor respondeu outro cdigo
+	 */
+	private HttpURLConnection openSegment(long start, long end) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) this.url.openConnection();
+		connection.setReadTimeout(this.timeout);
+		connection.setUseCaches(false);
+		connection.setRequestProperty("Range", "bytes=" + start + "-" + end);
+		if(this.ifRange != null){
+			connection.setRequestProperty("If-Range", this.ifRange);
+		}
+		int responseCode = connection.getResponseCode();
+		if(responseCode != HttpURLConnection.HTTP_PARTIAL){
+			logger.info("Range no aceito por '" + this.url + "', cdigo de resposta: " + responseCode);
+			connection.disconnect();
+			return null;
+		}
+		return connection;
+	}
+
+	private class Segment implements Callable<Void> {
+
+		private final HttpURLConnection connection;
+
+		private final FileChannel channel;
+
+		private final int index;
+
+		private Segment(HttpURLConnection connection, FileChannel channel, int index){
+			this.connection = connection;
+			this.channel = channel;
+			this.index = index;
+		}
+
+		@Override
+		public Void call() throws IOException {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+			long start = positions.get(this.index);
+			long end = ranges.get(this.index)[1];
+			long position = start;
+			InputStream is = ThrottledInputStream.wrap(this.connection.getInputStream(), limiter, priority);
+			try {
+				int bytes;
+				while(position <= end && (bytes = is.read(buffer, 0, (int) Math.min(buffer.length, end + 1 - position))) != -1){
+					byteBuffer.clear();
+					byteBuffer.limit(bytes);
+					while(byteBuffer.hasRemaining()){
+						position += this.channel.write(byteBuffer, position);
+					}
+					positions.set(this.index, position);
+					progress.add(bytes);
+				}
+			} finally {
+				is.close();
+			}
+			if(position <= end){
+				throw new IOException("Segmento " + start + "-" + end + " de '" + url + "' incompleto, recebidos " + (position - start) + " bytes.");
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package org.reichel.download;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * InputStream que copia para um OutputStream opcional cada byte lido e informa a quantidade lida no Progress.
+ * @author Markus Reichel
+ */
+class TeeInputStream extends FilterInputStream {
+
+	private final OutputStream outputStream;
+
+	private final Progress progress;
+
+	TeeInputStream(InputStream inputStream, OutputStream outputStream, Progress progress){
+		super(inputStream);
+		this.outputStream = outputStream;
+		this.progress = progress;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if(b != -1){
+			if(this.outputStream != null){
+				this.outputStream.write(b);
+			}
+			this.progress.add(1);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int bytes = super.read(b, off, len);
+		if(bytes > 0){
+			if(this.outputStream != null){
+				this.outputStream.write(b, off, bytes);
+			}
+			this.progress.add(bytes);
+		}
+		return bytes;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		byte[] buffer = new byte[(int) Math.min(n, 4096)];
+		long skipped = 0;
+		int bytes;
+		while(skipped < n && (bytes = read(buffer, 0, (int) Math.min(buffer.length, n - skipped))) != -1){
+			skipped += bytes;
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+}
@@ -0,0 +1,66 @@
+package org.reichel.download;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * InputStream que consome do BandwidthLimiter a quantidade lida em cada leitura.
+ * @author Markus Reichel
+ */
+class ThrottledInputStream extends FilterInputStream {
+
+	private final BandwidthLimiter limiter;
+
+	private final int priority;
+
+	ThrottledInputStream(InputStream inputStream, BandwidthLimiter limiter, int priority){
+		super(inputStream);
+		this.limiter = limiter;
+		this.priority = priority;
+	}
+
+	/**
+	 * @return inputStream limitado por limiter, ou o prprio inputStream se limiter for null
+	 */
+	static InputStream wrap(InputStream inputStream, BandwidthLimiter limiter, int priority){
+		return limiter == null ? inputStream : new ThrottledInputStream(inputStream, limiter, priority);
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if(b != -1){
+			acquire(1);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int bytes = super.read(b, off, len);
+		if(bytes > 0){
+			acquire(bytes);
+		}
+		return bytes;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(n);
+		if(skipped > 0){
+			acquire((int) skipped);
+		}
+		return skipped;
+	}
+
+	private void acquire(int bytes) throws InterruptedIOException {
+		try {
+			this.limiter.acquire(bytes, this.priority);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Leitura interrompida aguardando o BandwidthLimiter.");
+		}
+	}
+}
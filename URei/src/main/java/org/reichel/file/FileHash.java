@@ -0,0 +1,53 @@
+package org.reichel.file;
+
+/**
+ * Tamanho e hash do contedo de um arquivo registrado no HashManifest.
+ * @author Markus Reichel
+ */
+public class FileHash {
+
+	private final long size;
+
+	private final String hash;
+
+	public FileHash(long size, String hash){
+		if(hash == null || "".equals(hash)){
+			throw new IllegalArgumentException("Parametro hash no pode ser vazio ou nulo.");
+		}
+		this.size = size;
+		this.hash = hash;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return hash em hexadecimal minsculo
+	 */
+	public String getHash() {
+		return hash;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * hash.hashCode() + (int) (size ^ (size >>> 32));
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj){
+			return true;
+		}
+		if(!(obj instanceof FileHash)){
+			return false;
+		}
+		FileHash other = (FileHash) obj;
+		return size == other.size && hash.equals(other.hash);
+	}
+
+	@Override
+	public String toString(){
+		return size + ";" + hash;
+	}
+}
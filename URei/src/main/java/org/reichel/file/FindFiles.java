@@ -21,6 +21,18 @@ public class FindFiles {
 		return result;
 	}
 
+	/**
+	 * @return todos os arquivos abaixo de rootFolder, respeitando a profundidade configurada em deep
+	 */
+	public List<File> findFiles(String rootFolder){
+		List<File> result = new ArrayList<File>();
+		File root = new File(rootFolder);
+		if(root.isDirectory()){
+			result = findFile(root, new RegularFileFilter(), new ArrayList<File>(), 0);
+		}
+		return result;
+	}
+
 	public FindFiles ignoreCase(boolean ignoreCase){
 		this.ignoreCase = ignoreCase;
 		return this;
@@ -0,0 +1,33 @@
+package org.reichel.file;
+
+/**
+ * Algoritmos de hash suportados pelo HashManifest.
+ * SHA_256 garante integridade contra alteraes intencionais, CRC32 e CRC32C apenas detectam corrupo mas so bem mais rpidos.
+ * CRC32C utiliza instrues do processador quando disponveis e  o mais rpido dos trs.
+ * @author Markus Reichel
+ */
+public enum HashAlgorithmEnum {
+
+	SHA_256("SHA-256"),
+	CRC32("CRC32"),
+	CRC32C("CRC32C");
+
+	private final String algorithm;
+
+	private HashAlgorithmEnum(String algorithm){
+		this.algorithm = algorithm;
+	}
+
+	public static HashAlgorithmEnum fromAlgorithm(String algorithm){
+		for(HashAlgorithmEnum hashAlgorithmEnum : values()){
+			if(hashAlgorithmEnum.algorithm.equals(algorithm)){
+				return hashAlgorithmEnum;
+			}
+		}
+		return null;
+	}
+
+	public String getAlgorithm() {
+		return algorithm;
+	}
+}
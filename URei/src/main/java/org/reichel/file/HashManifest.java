@@ -0,0 +1,149 @@
+package org.reichel.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.log4j.Logger;
+import org.reichel.properties.SortedProperties;
+
+/**
+ * Manifesto com o tamanho e o hash do contedo de cada arquivo de uma rvore, chaveado pelo caminho relativo
+ * com '/' como separador.
+ *  gravado com SortedProperties, '&lt;caminho&gt;.size' e '&lt;caminho&gt;.hash' para cada arquivo e 'algorithm' com o algoritmo utilizado.
+ * Exemplo de utilizao:
+ * <pre>
+ *   new HashUtils().generate("deploy").store("deploy.sha256");
+ *   HashVerifyResult result = new HashUtils().verify("deploy", HashManifest.load("deploy.sha256"));
+ * </pre>
+ * @author Markus Reichel
+ * @see HashUtils
+ */
+public class HashManifest {
+
+	private static final Logger logger = Logger.getLogger(HashManifest.class);
+
+	public static String PROPERTIES_ALGORITHM = "algorithm";
+	public static String PROPERTIES_SIZE = ".size";
+	public static String PROPERTIES_HASH = ".hash";
+
+	private final HashAlgorithmEnum hashAlgorithmEnum;
+
+	private final Map<String, FileHash> entries = new ConcurrentSkipListMap<String, FileHash>();
+
+	public HashManifest(HashAlgorithmEnum hashAlgorithmEnum){
+		if(hashAlgorithmEnum == null){
+			throw new IllegalArgumentException("Parametro hashAlgorithmEnum no pode ser nulo.");
+		}
+		this.hashAlgorithmEnum = hashAlgorithmEnum;
+	}
+
+	/**
+	 * @param manifestFilePath caminho do arquivo gravado por {@link #store(String)}
+	 * @return manifesto carregado
+	 * @throws IOException quando no for possvel ler o arquivo ou alguma entrada for invlida
+	 */
+	public static HashManifest load(String manifestFilePath) throws IOException {
+		if(manifestFilePath == null || "".equals(manifestFilePath)){
+			throw new IllegalArgumentException("Parametro manifestFilePath no pode ser vazio ou nulo.");
+		}
+		SortedProperties properties = new SortedProperties();
+		InputStream is = new FileInputStream(manifestFilePath);
+		try {
+			properties.load(is);
+		} finally {
+			close(is);
+		}
+		HashAlgorithmEnum hashAlgorithmEnum = HashAlgorithmEnum.fromAlgorithm(properties.getProperty(PROPERTIES_ALGORITHM));
+		if(hashAlgorithmEnum == null){
+			throw new IOException("Algoritmo invlido no manifesto '" + manifestFilePath + "': " + properties.getProperty(PROPERTIES_ALGORITHM));
+		}
+		HashManifest hashManifest = new HashManifest(hashAlgorithmEnum);
+		Enumeration<Object> keys = properties.keys();
+		while(keys.hasMoreElements()){
+			String key = keys.nextElement().toString();
+			if(key.endsWith(PROPERTIES_SIZE)){
+				String relativePath = key.substring(0, key.length() - PROPERTIES_SIZE.length());
+				try {
+					hashManifest.put(relativePath, new FileHash(Long.parseLong(properties.getProperty(key)), properties.getProperty(relativePath + PROPERTIES_HASH)));
+				} catch (RuntimeException e) {
+					throw new IOException("Entrada invlida no manifesto '" + manifestFilePath + "': " + relativePath);
+				}
+			}
+		}
+		return hashManifest;
+	}
+
+	/**
+	 * @param manifestFilePath caminho do arquivo a ser gravado, os diretrios pai so criados se necessrio
+	 * @return a instancia de HashManifest
+	 * @throws IOException quando houver problemas ao escrever o arquivo
+	 */
+	public HashManifest store(String manifestFilePath) throws IOException {
+		if(manifestFilePath == null || "".equals(manifestFilePath)){
+			throw new IllegalArgumentException("Parametro manifestFilePath no pode ser vazio ou nulo.");
+		}
+		SortedProperties properties = new SortedProperties();
+		properties.setProperty(PROPERTIES_ALGORITHM, this.hashAlgorithmEnum.getAlgorithm());
+		for(Map.Entry<String, FileHash> entry : this.entries.entrySet()){
+			properties.setProperty(entry.getKey() + PROPERTIES_SIZE, Long.toString(entry.getValue().getSize()));
+			properties.setProperty(entry.getKey() + PROPERTIES_HASH, entry.getValue().getHash());
+		}
+		File parent = new File(manifestFilePath).getAbsoluteFile().getParentFile();
+		if(parent != null && !parent.exists()){
+			parent.mkdirs();
+		}
+		OutputStream os = new FileOutputStream(manifestFilePath);
+		try {
+			properties.store(os, "HashManifest");
+		} finally {
+			close(os);
+		}
+		return this;
+	}
+
+	public void put(String relativePath, FileHash fileHash){
+		this.entries.put(relativePath, fileHash);
+	}
+
+	/**
+	 * @return FileHash registrado para o caminho relativo ou null se no existir
+	 */
+	public FileHash get(String relativePath){
+		return this.entries.get(relativePath);
+	}
+
+	/**
+	 * @return caminhos relativos registrados, em ordem
+	 */
+	public Set<String> getPaths(){
+		return Collections.unmodifiableSet(this.entries.keySet());
+	}
+
+	public int size(){
+		return this.entries.size();
+	}
+
+	public HashAlgorithmEnum getHashAlgorithmEnum() {
+		return hashAlgorithmEnum;
+	}
+
+	private static void close(Closeable closeable) {
+		if(closeable != null){
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				logger.error("Problemas ao liberar recursos: " + e.getMessage());
+			}
+		}
+	}
+}
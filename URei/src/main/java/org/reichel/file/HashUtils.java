@@ -0,0 +1,197 @@
+package org.reichel.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Gerao e verificao de HashManifest de rvores de diretrios, com clculo de hash em paralelo.
+ * Exemplo de utilizao:
+ * <pre>
+ *   HashManifest hashManifest = new HashUtils().threads(4).algorithm(HashAlgorithmEnum.SHA_256).generate("deploy");
+ *   hashManifest.store("config/deploy.sha256");
+ *   ...
+ *   HashVerifyResult result = new HashUtils().verify("deploy", HashManifest.load("config/deploy.sha256"));
+ *   if(!result.isValid()){
+ *     ...
+ *   }
+ * </pre>
+ * @author Markus Reichel
+ */
+public class HashUtils {
+
+	/** Arquivos a partir deste tamanho so lidos atravs de memria mapeada. */
+	public static final long DEFAULT_MAPPED_THRESHOLD = 1024 * 1024;
+
+	private Integer threads = null;
+
+	private ExecutorService executorService = null;
+
+	private HashAlgorithmEnum hashAlgorithmEnum = HashAlgorithmEnum.SHA_256;
+
+	private long mappedThreshold = DEFAULT_MAPPED_THRESHOLD;
+
+	/**
+	 * @param threads quantidade de arquivos lidos em paralelo, null ou menor que 1 utiliza a quantidade de processadores
+	 * @return a instancia de HashUtils
+	 */
+	public HashUtils threads(Integer threads){
+		this.threads = threads;
+		return this;
+	}
+
+	/**
+	 * @param executorService executor utilizado no clculo, no  finalizado por HashUtils
+	 * @return a instancia de HashUtils
+	 */
+	public HashUtils executor(ExecutorService executorService){
+		this.executorService = executorService;
+		return this;
+	}
+
+	/**
+	 * @param hashAlgorithmEnum algoritmo utilizado em {@link #generate(String, String...)}, o padro  SHA_256
+	 * @return a instancia de HashUtils
+	 */
+	public HashUtils algorithm(HashAlgorithmEnum hashAlgorithmEnum){
+		if(hashAlgorithmEnum == null){
+			throw new IllegalArgumentException("Parametro hashAlgorithmEnum no pode ser nulo.");
+		}
+		this.hashAlgorithmEnum = hashAlgorithmEnum;
+		return this;
+	}
+
+	/**
+	 * @param mappedThreshold tamanho a partir do qual os arquivos so lidos atravs de memria mapeada
+	 * @return a instancia de HashUtils
+	 */
+	public HashUtils mappedThreshold(long mappedThreshold){
+		this.mappedThreshold = mappedThreshold;
+		return this;
+	}
+
+	/**
+	 * Calcula o hash de todos os arquivos abaixo de rootFolder.
+	 * @param rootFolder diretrio raiz da rvore
+	 * @param exceptions caminhos relativos a serem ignorados, ex: o prprio manifesto quando gravado dentro da rvore, null para nenhum
+	 * @return HashManifest com os caminhos relativos a rootFolder
+	 * @throws IOException quando algum arquivo no puder ser lido
+	 */
+	public HashManifest generate(String rootFolder, String... exceptions) throws IOException {
+		List<String> paths = new ArrayList<String>();
+		List<File> files = new ArrayList<File>();
+		listFiles(rootFolder, exceptions, paths, files);
+
+		Map<String, IOException> errors = new ConcurrentSkipListMap<String, IOException>();
+		FileHash[] hashes = hash(this.hashAlgorithmEnum, paths, files, errors);
+		if(!errors.isEmpty()){
+			Map.Entry<String, IOException> first = errors.entrySet().iterator().next();
+			throw new IOException("Problemas ao calcular hash de " + errors.size() + " arquivo(s), '" + first.getKey() + "': " + first.getValue().getMessage());
+		}
+		HashManifest hashManifest = new HashManifest(this.hashAlgorithmEnum);
+		for(int i = 0; i < hashes.length; i++){
+			hashManifest.put(paths.get(i), hashes[i]);
+		}
+		return hashManifest;
+	}
+
+	/**
+	 * Verifica rootFolder contra um manifesto utilizando o algoritmo do manifesto.
+	 * Somente os arquivos com o mesmo tamanho registrado no manifesto so lidos.
+	 * @param rootFolder diretrio raiz da rvore
+	 * @param hashManifest manifesto gerado anteriormente
+	 * @param exceptions caminhos relativos a serem ignorados, null para nenhum
+	 * @return HashVerifyResult com as diferenas encontradas
+	 * @throws IOException quando a verificao for interrompida
+	 */
+	public HashVerifyResult verify(String rootFolder, HashManifest hashManifest, String... exceptions) throws IOException {
+		if(hashManifest == null){
+			throw new IllegalArgumentException("Parametro hashManifest no pode ser nulo.");
+		}
+		List<String> paths = new ArrayList<String>();
+		List<File> files = new ArrayList<File>();
+		listFiles(rootFolder, exceptions, paths, files);
+
+		HashVerifyResult result = new HashVerifyResult();
+		Set<String> found = new HashSet<String>(paths);
+		for(String relativePath : hashManifest.getPaths()){
+			if(!found.contains(relativePath)){
+				result.missing(relativePath);
+			}
+		}
+		List<String> hashPaths = new ArrayList<String>();
+		List<File> hashFiles = new ArrayList<File>();
+		for(int i = 0; i < paths.size(); i++){
+			FileHash expected = hashManifest.get(paths.get(i));
+			if(expected == null){
+				result.unexpected(paths.get(i));
+			} else if(expected.getSize() != files.get(i).length()){
+				result.changed(paths.get(i));
+			} else {
+				hashPaths.add(paths.get(i));
+				hashFiles.add(files.get(i));
+			}
+		}
+
+		Map<String, IOException> errors = new ConcurrentSkipListMap<String, IOException>();
+		FileHash[] hashes = hash(hashManifest.getHashAlgorithmEnum(), hashPaths, hashFiles, errors);
+		for(int i = 0; i < hashes.length; i++){
+			if(hashes[i] == null){
+				continue;
+			}
+			if(hashes[i].equals(hashManifest.get(hashPaths.get(i)))){
+				result.verified();
+			} else {
+				result.changed(hashPaths.get(i));
+			}
+		}
+		for(Map.Entry<String, IOException> error : errors.entrySet()){
+			result.error(error.getKey(), error.getValue());
+		}
+		return result;
+	}
+
+	private void listFiles(String rootFolder, String[] exceptions, List<String> paths, List<File> files) {
+		if(rootFolder == null || "".equals(rootFolder)){
+			throw new IllegalArgumentException("Parametro rootFolder no pode ser vazio ou nulo.");
+		}
+		File root = new File(rootFolder);
+		if(!root.isDirectory()){
+			throw new IllegalArgumentException("Parametro rootFolder deve ser um diretrio: " + root.getAbsolutePath());
+		}
+		String rootPath = root.getAbsolutePath();
+		Set<String> ignored = exceptions == null ? Collections.<String>emptySet() : new HashSet<String>(Arrays.asList(exceptions));
+		for(File file : new FindFiles().findFiles(rootFolder)){
+			String relativePath = file.getAbsolutePath().substring(rootPath.length() + 1).replace(File.separatorChar, '/');
+			if(!ignored.contains(relativePath)){
+				paths.add(relativePath);
+				files.add(file);
+			}
+		}
+	}
+
+	private FileHash[] hash(HashAlgorithmEnum hashAlgorithmEnum, List<String> paths, List<File> files, Map<String, IOException> errors) throws IOException {
+		if(files.isEmpty()){
+			return new FileHash[0];
+		}
+		int workers = this.threads != null && this.threads > 0 ? this.threads : Runtime.getRuntime().availableProcessors();
+		if(this.executorService != null){
+			return new ParallelHasher(hashAlgorithmEnum, this.executorService, workers, this.mappedThreshold).hash(paths, files, errors);
+		}
+		ExecutorService executorService = Executors.newFixedThreadPool(Math.min(workers, files.size()));
+		try {
+			return new ParallelHasher(hashAlgorithmEnum, executorService, workers, this.mappedThreshold).hash(paths, files, errors);
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+}
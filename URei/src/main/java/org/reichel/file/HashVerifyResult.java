@@ -0,0 +1,94 @@
+package org.reichel.file;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resultado da verificao de uma rvore contra um HashManifest, os caminhos so relativos e ordenados.
+ * @author Markus Reichel
+ * @see HashUtils#verify(String, HashManifest, String...)
+ */
+public class HashVerifyResult {
+
+	private final Set<String> missing = new ConcurrentSkipListSet<String>();
+
+	private final Set<String> unexpected = new ConcurrentSkipListSet<String>();
+
+	private final Set<String> changed = new ConcurrentSkipListSet<String>();
+
+	private final AtomicInteger verified = new AtomicInteger();
+
+	private final Map<String, IOException> errors = new ConcurrentSkipListMap<String, IOException>();
+
+	void missing(String relativePath){
+		this.missing.add(relativePath);
+	}
+
+	void unexpected(String relativePath){
+		this.unexpected.add(relativePath);
+	}
+
+	void changed(String relativePath){
+		this.changed.add(relativePath);
+	}
+
+	void verified(){
+		this.verified.incrementAndGet();
+	}
+
+	void error(String relativePath, IOException e){
+		this.errors.put(relativePath, e);
+	}
+
+	/**
+	 * @return arquivos do manifesto que no existem na rvore
+	 */
+	public Set<String> getMissing() {
+		return Collections.unmodifiableSet(missing);
+	}
+
+	/**
+	 * @return arquivos da rvore que no constam no manifesto
+	 */
+	public Set<String> getUnexpected() {
+		return Collections.unmodifiableSet(unexpected);
+	}
+
+	/**
+	 * @return arquivos com tamanho ou hash diferente do manifesto
+	 */
+	public Set<String> getChanged() {
+		return Collections.unmodifiableSet(changed);
+	}
+
+	/**
+	 * @return quantidade de arquivos iguais ao manifesto
+	 */
+	public int getVerified() {
+		return verified.get();
+	}
+
+	/**
+	 * @return mapa ordenado pelo caminho relativo com o erro ocorrido ao ler o arquivo
+	 */
+	public Map<String, IOException> getErrors() {
+		return Collections.unmodifiableMap(errors);
+	}
+
+	/**
+	 * @return true se a rvore for idntica ao manifesto e no houve erros de leitura
+	 */
+	public boolean isValid(){
+		return missing.isEmpty() && unexpected.isEmpty() && changed.isEmpty() && errors.isEmpty();
+	}
+
+	@Override
+	public String toString(){
+		return "verified=" + getVerified() + " changed=" + changed.size() + " missing=" + missing.size() + " unexpected=" + unexpected.size() + " errors=" + errors.size();
+	}
+}
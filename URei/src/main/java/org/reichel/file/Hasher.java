@@ -0,0 +1,121 @@
+package org.reichel.file;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+/**
+ * Clculo incremental de hash sobre arrays e ByteBuffers, uma instncia por thread.
+ * @author Markus Reichel
+ */
+public abstract class Hasher {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	public abstract void update(byte[] b, int off, int len);
+
+	public abstract void update(ByteBuffer byteBuffer);
+
+	/**
+	 * @return hash em hexadecimal, reiniciando o Hasher para o prximo arquivo
+	 */
+	public abstract String digest();
+
+	/**
+	 * Descarta o estado parcial, utilizado quando a leitura de um arquivo falha antes de {@link #digest()}.
+	 */
+	public abstract void reset();
+
+	public static Hasher newHasher(HashAlgorithmEnum hashAlgorithmEnum){
+		if(hashAlgorithmEnum == null){
+			throw new IllegalArgumentException("Parametro hashAlgorithmEnum no pode ser nulo.");
+		}
+		if(hashAlgorithmEnum == HashAlgorithmEnum.CRC32){
+			return new ChecksumHasher(new CRC32());
+		}
+		if(hashAlgorithmEnum == HashAlgorithmEnum.CRC32C){
+			return new ChecksumHasher(new CRC32C());
+		}
+		try {
+			return new MessageDigestHasher(MessageDigest.getInstance(hashAlgorithmEnum.getAlgorithm()));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalArgumentException("Algoritmo no suportado: " + hashAlgorithmEnum.getAlgorithm());
+		}
+	}
+
+	static String toHex(byte[] bytes){
+		char[] chars = new char[bytes.length * 2];
+		for(int i = 0; i < bytes.length; i++){
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+
+	private static class MessageDigestHasher extends Hasher {
+
+		private final MessageDigest messageDigest;
+
+		private MessageDigestHasher(MessageDigest messageDigest){
+			this.messageDigest = messageDigest;
+		}
+
+		@Override
+		public void update(byte[] b, int off, int len) {
+			this.messageDigest.update(b, off, len);
+		}
+
+		@Override
+		public void update(ByteBuffer byteBuffer) {
+			this.messageDigest.update(byteBuffer);
+		}
+
+		@Override
+		public String digest() {
+			return toHex(this.messageDigest.digest());
+		}
+
+		@Override
+		public void reset() {
+			this.messageDigest.reset();
+		}
+	}
+
+	/**
+	 * CRC32 e CRC32C calculados diretamente sobre o ByteBuffer, sem cpia do contedo mapeado.
+	 */
+	private static class ChecksumHasher extends Hasher {
+
+		private final Checksum crc;
+
+		private ChecksumHasher(Checksum crc){
+			this.crc = crc;
+		}
+
+		@Override
+		public void update(byte[] b, int off, int len) {
+			this.crc.update(b, off, len);
+		}
+
+		@Override
+		public void update(ByteBuffer byteBuffer) {
+			this.crc.update(byteBuffer);
+		}
+
+		@Override
+		public String digest() {
+			long value = this.crc.getValue();
+			this.crc.reset();
+			String hex = Long.toHexString(value);
+			return "00000000".substring(hex.length()) + hex;
+		}
+
+		@Override
+		public void reset() {
+			this.crc.reset();
+		}
+	}
+}
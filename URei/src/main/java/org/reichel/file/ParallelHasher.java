@@ -0,0 +1,115 @@
+package org.reichel.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clculo paralelo de hash de uma lista de arquivos.
+ * Cada worker retira o prximo arquivo de um contador compartilhado e reutiliza o seu prprio Hasher e buffer,
+ * arquivos a partir de mappedThreshold bytes so lidos atravs de FileChannel.map em janelas de MAP_SIZE bytes.
+ * @author Markus Reichel
+ * @see HashUtils
+ */
+class ParallelHasher {
+
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	/** Tamanho mximo de cada janela mapeada, limita o espao de endereamento ocupado por arquivo. */
+	static final long MAP_SIZE = 64L * 1024 * 1024;
+
+	private final HashAlgorithmEnum hashAlgorithmEnum;
+
+	private final ExecutorService executorService;
+
+	private final int workers;
+
+	private final long mappedThreshold;
+
+	ParallelHasher(HashAlgorithmEnum hashAlgorithmEnum, ExecutorService executorService, int workers, long mappedThreshold){
+		this.hashAlgorithmEnum = hashAlgorithmEnum;
+		this.executorService = executorService;
+		this.workers = workers;
+		this.mappedThreshold = mappedThreshold;
+	}
+
+	/**
+	 * @param paths caminhos relativos, utilizados como chave em errors
+	 * @param files arquivos na mesma ordem de paths
+	 * @param errors recebe o erro de cada arquivo que no pde ser lido
+	 * @return FileHash de cada arquivo na mesma ordem de files, null nos arquivos com erro
+	 * @throws IOException quando a thread chamadora for interrompida
+	 */
+	FileHash[] hash(final List<String> paths, final List<File> files, final Map<String, IOException> errors) throws IOException {
+		final FileHash[] hashes = new FileHash[files.size()];
+		final AtomicInteger next = new AtomicInteger();
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for(int i = 0; i < Math.min(this.workers, files.size()); i++){
+			futures.add(this.executorService.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					byte[] buffer = new byte[BUFFER_SIZE];
+					Hasher hasher = Hasher.newHasher(hashAlgorithmEnum);
+					int index;
+					while((index = next.getAndIncrement()) < hashes.length){
+						try {
+							hashes[index] = hash(files.get(index), hasher, buffer);
+						} catch (IOException e) {
+							hasher.reset();
+							errors.put(paths.get(index), e);
+						}
+					}
+					return null;
+				}
+			}));
+		}
+		for(Future<Void> future : futures){
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				next.set(hashes.length);
+				throw new InterruptedIOException("Clculo de hash interrompido.");
+			} catch (ExecutionException e) {
+				if(e.getCause() instanceof RuntimeException){
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IOException("Problemas no clculo de hash: " + e.getCause());
+			}
+		}
+		return hashes;
+	}
+
+	private FileHash hash(File file, Hasher hasher, byte[] buffer) throws IOException {
+		FileInputStream fis = new FileInputStream(file);
+		try {
+			FileChannel channel = fis.getChannel();
+			long size = channel.size();
+			if(size >= this.mappedThreshold){
+				for(long position = 0; position < size; position += MAP_SIZE){
+					hasher.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_SIZE, size - position)));
+				}
+			} else {
+				size = 0;
+				int bytes;
+				while((bytes = fis.read(buffer)) != -1){
+					hasher.update(buffer, 0, bytes);
+					size += bytes;
+				}
+			}
+			return new FileHash(size, hasher.digest());
+		} finally {
+			fis.close();
+		}
+	}
+}
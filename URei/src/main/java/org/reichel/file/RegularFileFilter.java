@@ -0,0 +1,13 @@
+package org.reichel.file;
+
+import java.io.File;
+import java.io.FileFilter;
+
+public class RegularFileFilter implements FileFilter {
+
+	@Override
+	public boolean accept(File pathname) {
+		return pathname != null && pathname.isFile();
+	}
+
+}
@@ -0,0 +1,12 @@
+package org.reichel.jar;
+
+/**
+ * Tipos de mudana de um jar entre a verso local e a verso remota.
+ * @author Markus Reichel
+ * @see UpdatePlan
+ */
+public enum ChangeTypeEnum {
+
+	ADDED, REMOVED, UPGRADED, DOWNGRADED, TYPE_CHANGED;
+
+}
@@ -0,0 +1,134 @@
+package org.reichel.jar;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+import org.reichel.properties.SortedProperties;
+
+/**
+ * Arquivo auxiliar gravado no diretrio de destino com o CRC-32, o tamanho e a data de modificao
+ * de cada arquivo extrado de um jar, permitindo  extrao incremental saber o que no mudou sem recalcular o CRC.
+ * O nome do arquivo  '.&lt;nome do jar&gt;.crc', um por jar extrado no diretrio.
+ * @author Markus Reichel
+ * @see JarUtils#incremental(boolean)
+ */
+class ExtractIndex {
+
+	private static final Logger logger = Logger.getLogger(ExtractIndex.class);
+
+	private final File indexFile;
+
+	private final Map<String, Record> previous = new ConcurrentHashMap<String, Record>();
+
+	private final Map<String, Record> current = new ConcurrentHashMap<String, Record>();
+
+	ExtractIndex(String jarFilePath, String targetFolder){
+		this.indexFile = new File(targetFolder + "." + new File(jarFilePath).getName() + ".crc");
+		if(this.indexFile.exists()){
+			load();
+		}
+	}
+
+	private void load() {
+		SortedProperties properties = new SortedProperties();
+		InputStream is = null;
+		try {
+			is = new FileInputStream(this.indexFile);
+			properties.load(is);
+		} catch (IOException e) {
+			logger.error("Erro ao carregar '" + this.indexFile.getAbsolutePath() + "'. " + e.getClass().getName() + ":" + e.getMessage());
+		} finally {
+			close(is);
+		}
+		Enumeration<Object> keys = properties.keys();
+		while(keys.hasMoreElements()){
+			String name = keys.nextElement().toString();
+			String[] values = properties.getProperty(name).split(";");
+			try {
+				this.previous.put(name, new Record(Long.parseLong(values[0], 16), Long.parseLong(values[1]), Long.parseLong(values[2])));
+			} catch (RuntimeException e) {
+				logger.error("Registro invlido em '" + this.indexFile.getAbsolutePath() + "': " + name);
+			}
+		}
+	}
+
+	/**
+	 * @return true se existir registro do arquivo com o mesmo CRC e tamanho, e o arquivo em disco ainda tiver o tamanho e a data registrados
+	 */
+	boolean isUnchanged(String name, long crc, long size, File targetFile){
+		Record record = this.previous.get(name);
+		return record != null && record.crc == crc && record.size == size
+				&& targetFile.length() == size && targetFile.lastModified() == record.lastModified;
+	}
+
+	boolean hasRecord(String name){
+		return this.previous.containsKey(name);
+	}
+
+	void record(String name, long crc, long size, long lastModified){
+		this.current.put(name, new Record(crc, size, lastModified));
+	}
+
+	/**
+	 * @return nomes registrados na extrao anterior que no foram registrados nesta
+	 */
+	Set<String> removed(Set<String> names){
+		Set<String> result = new TreeSet<String>(this.previous.keySet());
+		result.removeAll(names);
+		return result;
+	}
+
+	void store() throws IOException {
+		SortedProperties properties = new SortedProperties();
+		for(Map.Entry<String, Record> entry : this.current.entrySet()){
+			Record record = entry.getValue();
+			properties.setProperty(entry.getKey(), Long.toHexString(record.crc) + ";" + record.size + ";" + record.lastModified);
+		}
+		OutputStream os = new FileOutputStream(this.indexFile);
+		try {
+			properties.store(os, "ExtractIndex");
+		} finally {
+			close(os);
+		}
+	}
+
+	File getIndexFile() {
+		return indexFile;
+	}
+
+	private void close(Closeable closeable) {
+		if(closeable != null){
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				logger.error("Problemas ao liberar recursos: " + e.getMessage());
+			}
+		}
+	}
+
+	private static class Record {
+
+		private final long crc;
+
+		private final long size;
+
+		private final long lastModified;
+
+		private Record(long crc, long size, long lastModified){
+			this.crc = crc;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package org.reichel.jar;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resultado de uma extrao de jar, com os contadores e os erros de I/O de cada entrada que no pde ser extrada.
+ * @author Markus Reichel
+ * @see JarUtils#extractFilesParallel(String, String, boolean)
+ */
+public class ExtractResult {
+
+	private final AtomicInteger extracted = new AtomicInteger();
+
+	private final AtomicLong bytes = new AtomicLong();
+
+	private final AtomicInteger skipped = new AtomicInteger();
+
+	private final AtomicInteger deleted = new AtomicInteger();
+
+	private final Map<String, IOException> errors = new ConcurrentSkipListMap<String, IOException>();
+
+	void extracted(long bytes){
+		this.extracted.incrementAndGet();
+		this.bytes.addAndGet(bytes);
+	}
+
+	void skipped(){
+		this.skipped.incrementAndGet();
+	}
+
+	void deleted(){
+		this.deleted.incrementAndGet();
+	}
+
+	void error(String name, IOException e){
+		this.errors.put(name, e);
+	}
+
+	/**
+	 * @return quantidade de arquivos gravados no diretrio de destino
+	 */
+	public int getExtracted() {
+		return extracted.get();
+	}
+
+	/**
+	 * @return quantidade de bytes gravados no diretrio de destino
+	 */
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	/**
+	 * @return quantidade de arquivos no regravados por estarem iguais  entrada do jar (modo incremental)
+	 */
+	public int getSkipped() {
+		return skipped.get();
+	}
+
+	/**
+	 * @return quantidade de arquivos removidos do destino por no existirem mais no jar
+	 */
+	public int getDeleted() {
+		return deleted.get();
+	}
+
+	/**
+	 * @return mapa ordenado pelo nome da entrada com o erro ocorrido ao extra-la
+	 */
+	public Map<String, IOException> getErrors() {
+		return Collections.unmodifiableMap(errors);
+	}
+
+	public boolean hasErrors(){
+		return !errors.isEmpty();
+	}
+
+	@Override
+	public String toString(){
+		return "extracted=" + getExtracted() + " bytes=" + getBytes() + " skipped=" + getSkipped() + " deleted=" + getDeleted() + " errors=" + errors.size();
+	}
+}
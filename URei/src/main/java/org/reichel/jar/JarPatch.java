@@ -0,0 +1,227 @@
+package org.reichel.jar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.log4j.Logger;
+import org.reichel.properties.SortedProperties;
+
+/**
+ * Patch por entrada entre duas verses de um jar.
+ * O patch  um zip com 'jarpatch.properties', que descreve todas as entradas do jar novo na ordem original
+ * (nome, CRC-32, tamanho, data, mtodo e origem), e com 'data/&lt;ndice&gt;' para cada entrada nova ou alterada.
+ * Entradas com o mesmo nome, CRC-32 e tamanho no jar antigo so copiadas dele na aplicao.
+ * O jar gerado pela aplicao tem as mesmas entradas e contedos do jar novo, verificados pelo CRC-32,
+ * mas no necessariamente os mesmos bytes, pois as entradas so comprimidas novamente.
+ * Por isso os jars so identificados pela chave de contedo ({@link #getContentKey(String)}) e no pelo hash do arquivo.
+ * @author Markus Reichel
+ * @see JarUtils#createPatch(String, String, String)
+ * @see JarUtils#applyPatch(String, String, String)
+ */
+class JarPatch {
+
+	private static final Logger logger = Logger.getLogger(JarPatch.class);
+
+	static final String PATCH_PROPERTIES = "jarpatch.properties";
+	static final String PATCH_DATA = "data/";
+
+	static final String PROPERTIES_FROM = "from";
+	static final String PROPERTIES_TO = "to";
+	static final String PROPERTIES_ENTRIES = "entries";
+	static final String PROPERTIES_NAME = ".name";
+	static final String PROPERTIES_CRC = ".crc";
+	static final String PROPERTIES_SIZE = ".size";
+	static final String PROPERTIES_TIME = ".time";
+	static final String PROPERTIES_METHOD = ".method";
+	static final String PROPERTIES_SOURCE = ".source";
+
+	static final String SOURCE_OLD = "old";
+	static final String SOURCE_PATCH = "patch";
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final byte[] buffer = new byte[64 * 1024];
+
+	/**
+	 * @return SHA-256 em hexadecimal do nome, CRC-32 e tamanho de cada entrada, na ordem do diretrio central
+	 */
+	String getContentKey(String jarFilePath) throws IOException {
+		MessageDigest messageDigest = newMessageDigest();
+		JarFile jarFile = new JarFile(jarFilePath);
+		try {
+			Enumeration<JarEntry> entries = jarFile.entries();
+			while(entries.hasMoreElements()){
+				JarEntry entry = entries.nextElement();
+				messageDigest.update((entry.getName() + "\n" + Long.toHexString(entry.getCrc()) + "\n" + entry.getSize() + "\n").getBytes("UTF-8"));
+			}
+		} finally {
+			jarFile.close();
+		}
+		return toHex(messageDigest.digest());
+	}
+
+	void create(String oldJarFilePath, String newJarFilePath, String patchFilePath) throws IOException {
+		SortedProperties properties = new SortedProperties();
+		properties.setProperty(PROPERTIES_FROM, getContentKey(oldJarFilePath));
+		properties.setProperty(PROPERTIES_TO, getContentKey(newJarFilePath));
+		JarFile oldJar = new JarFile(oldJarFilePath);
+		JarFile newJar = null;
+		ZipOutputStream zos = null;
+		int changed = 0;
+		int index = 0;
+		try {
+			newJar = new JarFile(newJarFilePath);
+			zos = new ZipOutputStream(new FileOutputStream(patchFilePath));
+			Enumeration<JarEntry> entries = newJar.entries();
+			while(entries.hasMoreElements()){
+				JarEntry entry = entries.nextElement();
+				String key = Integer.toString(index);
+				properties.setProperty(key + PROPERTIES_NAME, entry.getName());
+				properties.setProperty(key + PROPERTIES_CRC, Long.toHexString(entry.getCrc()));
+				properties.setProperty(key + PROPERTIES_SIZE, Long.toString(entry.getSize()));
+				properties.setProperty(key + PROPERTIES_TIME, Long.toString(entry.getTime()));
+				properties.setProperty(key + PROPERTIES_METHOD, Integer.toString(entry.getMethod()));
+				ZipEntry oldEntry = oldJar.getEntry(entry.getName());
+				if(oldEntry != null && oldEntry.getCrc() == entry.getCrc() && oldEntry.getSize() == entry.getSize()){
+					properties.setProperty(key + PROPERTIES_SOURCE, SOURCE_OLD);
+				} else {
+					properties.setProperty(key + PROPERTIES_SOURCE, SOURCE_PATCH);
+					zos.putNextEntry(new ZipEntry(PATCH_DATA + key));
+					copy(newJar.getInputStream(entry), zos, null);
+					zos.closeEntry();
+					changed++;
+				}
+				index++;
+			}
+			properties.setProperty(PROPERTIES_ENTRIES, Integer.toString(index));
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			properties.store(baos, "JarPatch");
+			zos.putNextEntry(new ZipEntry(PATCH_PROPERTIES));
+			zos.write(baos.toByteArray());
+			zos.closeEntry();
+		} finally {
+			if(zos != null){
+				zos.close();
+			}
+			if(newJar != null){
+				newJar.close();
+			}
+			oldJar.close();
+		}
+		logger.info("Patch '" + patchFilePath + "' gerado com " + changed + " de " + index + " entradas.");
+	}
+
+	/**
+	 * Grava targetJarFilePath a partir do jar antigo e do patch, conferindo o CRC-32 e o tamanho de cada entrada gravada.
+	 * @throws IOException quando o jar antigo no for o jar de origem do patch ou alguma entrada no conferir
+	 */
+	void apply(String oldJarFilePath, String patchFilePath, String targetJarFilePath) throws IOException {
+		ZipFile patch = new ZipFile(patchFilePath);
+		ZipFile oldJar = null;
+		ZipOutputStream zos = null;
+		try {
+			SortedProperties properties = new SortedProperties();
+			ZipEntry propertiesEntry = patch.getEntry(PATCH_PROPERTIES);
+			if(propertiesEntry == null){
+				throw new IOException("Patch invlido, '" + PATCH_PROPERTIES + "' no encontrado: " + patchFilePath);
+			}
+			InputStream is = patch.getInputStream(propertiesEntry);
+			try {
+				properties.load(is);
+			} finally {
+				is.close();
+			}
+			String contentKey = getContentKey(oldJarFilePath);
+			if(!contentKey.equals(properties.getProperty(PROPERTIES_FROM))){
+				throw new IOException("Patch '" + patchFilePath + "' no foi gerado a partir de '" + oldJarFilePath + "'.");
+			}
+			oldJar = new ZipFile(oldJarFilePath);
+			zos = new ZipOutputStream(new FileOutputStream(targetJarFilePath));
+			int entries = Integer.parseInt(properties.getProperty(PROPERTIES_ENTRIES));
+			CRC32 crc = new CRC32();
+			for(int index = 0; index < entries; index++){
+				String key = Integer.toString(index);
+				String name = properties.getProperty(key + PROPERTIES_NAME);
+				long expectedCrc = Long.parseLong(properties.getProperty(key + PROPERTIES_CRC), 16);
+				long expectedSize = Long.parseLong(properties.getProperty(key + PROPERTIES_SIZE));
+				ZipFile sourceFile = SOURCE_OLD.equals(properties.getProperty(key + PROPERTIES_SOURCE)) ? oldJar : patch;
+				ZipEntry source = sourceFile == oldJar ? oldJar.getEntry(name) : patch.getEntry(PATCH_DATA + key);
+				if(source == null){
+					throw new IOException("Entrada '" + name + "' no encontrada para aplicar o patch '" + patchFilePath + "'.");
+				}
+				ZipEntry entry = new ZipEntry(name);
+				entry.setTime(Long.parseLong(properties.getProperty(key + PROPERTIES_TIME)));
+				int method = Integer.parseInt(properties.getProperty(key + PROPERTIES_METHOD));
+				entry.setMethod(method);
+				if(method == ZipEntry.STORED){
+					entry.setSize(expectedSize);
+					entry.setCompressedSize(expectedSize);
+					entry.setCrc(expectedCrc);
+				}
+				zos.putNextEntry(entry);
+				crc.reset();
+				long size = copy(sourceFile.getInputStream(source), zos, crc);
+				zos.closeEntry();
+				if(size != expectedSize || crc.getValue() != expectedCrc){
+					throw new IOException("Entrada '" + name + "' no confere aps aplicar o patch '" + patchFilePath + "'.");
+				}
+			}
+		} catch (RuntimeException e) {
+			throw new IOException("Patch invlido '" + patchFilePath + "': " + e);
+		} finally {
+			if(zos != null){
+				zos.close();
+			}
+			if(oldJar != null){
+				oldJar.close();
+			}
+			patch.close();
+		}
+	}
+
+	private long copy(InputStream is, OutputStream os, CRC32 crc) throws IOException {
+		long size = 0;
+		try {
+			int bytes;
+			while((bytes = is.read(this.buffer)) != -1){
+				os.write(this.buffer, 0, bytes);
+				if(crc != null){
+					crc.update(this.buffer, 0, bytes);
+				}
+				size += bytes;
+			}
+		} finally {
+			is.close();
+		}
+		return size;
+	}
+
+	private MessageDigest newMessageDigest() throws IOException {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("SHA-256 no suportado: " + e.getMessage());
+		}
+	}
+
+	private static String toHex(byte[] bytes){
+		char[] chars = new char[bytes.length * 2];
+		for(int i = 0; i < bytes.length; i++){
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+}
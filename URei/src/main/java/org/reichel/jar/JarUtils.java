@@ -10,6 +10,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -32,6 +34,89 @@ public class JarUtils {
 	public static String PROPERTIES_FILENAME = ".filename";
 	public static String PROPERTIES_PATH = ".path";
 	public static String PROPERTIES_TYPE = ".type";
+	public static String PATCH_EXTENSION = ".jarpatch";
+	
+	private Integer threads = null;
+	
+	private ExecutorService executorService = null;
+	
+	private JarVersionIndex versionIndex = null;
+	
+	private JarVersionCache versionCache = null;
+	
+	private boolean incremental = false;
+	
+	private boolean deleteRemoved = false;
+	
+	/**
+	 * Define a quantidade de threads utilizadas na varredura de diretrios em {@link #getJarVersions(String, Map, String...)}.
+	 * Com null ou valor menor que 2 a varredura  feita na thread chamadora (modo serial).
+	 * @param threads quantidade de threads
+	 * @return a instancia de JarUtils
+	 */
+	public JarUtils threads(Integer threads){
+		this.threads = threads;
+		return this;
+	}
+	
+	/**
+	 * Define um ExecutorService externo para a varredura paralela de diretrios.
+	 * Tem precedncia sobre {@link #threads(Integer)} e no  finalizado pelo JarUtils.
+	 * @param executorService executor a ser utilizado ou null para voltar ao comportamento padro
+	 * @return a instancia de JarUtils
+	 */
+	public JarUtils executor(ExecutorService executorService){
+		this.executorService = executorService;
+		return this;
+	}
+	
+	/**
+	 * Define um ndice persistente para {@link #getJarVersions(String, Map, String...)}.
+	 * Com o ndice somente os jars novos ou alterados (tamanho ou data de modificao) so reabertos,
+	 * e o ndice  atualizado e gravado em disco ao final de cada varredura.
+	 * @param versionIndex ndice do diretrio raiz varrido ou null para ler sempre todos os jars
+	 * @return a instancia de JarUtils
+	 */
+	public JarUtils versionIndex(JarVersionIndex versionIndex){
+		this.versionIndex = versionIndex;
+		return this;
+	}
+	
+	/**
+	 * Define um cache de JarVersion para as verses criadas por este JarUtils, fazendo com que verses idnticas
+	 * compartilhem a mesma instancia entre varreduras e catlogos.
+	 * @param versionCache cache a ser utilizado ou null para criar sempre novas instancias
+	 * @return a instancia de JarUtils
+	 */
+	public JarUtils versionCache(JarVersionCache versionCache){
+		this.versionCache = versionCache;
+		return this;
+	}
+	
+	/**
+	 * Ativa a extrao incremental em {@link #extractFilesParallel(String, String, boolean)} e
+	 * {@link #extractFiles(String, String, boolean)}: somente as entradas cujo
+	 * CRC-32 ou tamanho diferem do arquivo de destino so gravadas. Os valores de cada arquivo extrado ficam registrados
+	 * no arquivo '.&lt;nome do jar&gt;.crc' do diretrio de destino, evitando recalcular o CRC nas prximas extraes.
+	 * @param incremental true para ativar a extrao incremental
+	 * @return a instancia de JarUtils
+	 */
+	public JarUtils incremental(boolean incremental){
+		this.incremental = incremental;
+		return this;
+	}
+	
+	/**
+	 * Na extrao incremental remove do destino os arquivos extrados anteriormente deste jar que no existem mais nele.
+	 * Somente arquivos registrados no '.&lt;nome do jar&gt;.crc' so removidos.
+	 * @param deleteRemoved true para remover os arquivos
+	 * @return a instancia de JarUtils
+	 * @see #incremental(boolean)
+	 */
+	public JarUtils deleteRemoved(boolean deleteRemoved){
+		this.deleteRemoved = deleteRemoved;
+		return this;
+	}
 	
 	/**
 	 * Extrai todos os arquivos de um arquivo jar para um diretrio.
@@ -71,6 +156,10 @@ public class JarUtils {
 	 *  }
 	 * </pre>
 	 * 
+	 * Com {@link #incremental(boolean)} ativo a extrao  feita pelo mesmo mecanismo de
+	 * {@link #extractFilesParallel(String, String, boolean)} com uma nica thread, respeitando tambm {@link #deleteRemoved(boolean)};
+	 * os erros continuam sendo apenas registrados no log.
+	 * 
 	 * @param jarFilePath caminho do arquivo jar a ser extrado ex: config\ambienteconfig.jar
 	 * @param targetFolder caminho do diretrio raiz onde os arquivos sero extrados ex: config\extract
 	 * @throws IOException quando houver problemas ao ler e/ou escrever arquivos
@@ -87,6 +176,18 @@ public class JarUtils {
 			targetFolder += File.separatorChar;
 		}
 		
+		if(this.incremental){
+			ExecutorService executorService = Executors.newSingleThreadExecutor();
+			try {
+				new ParallelJarExtractor(jarFilePath, targetFolder, executorService, 1, true, this.deleteRemoved).extract(extractMetaInf);
+			} catch (IOException e) {
+				logger.error("Problemas ao extrair: " + jarFilePath + " " + e.getMessage());
+			} finally {
+				executorService.shutdownNow();
+			}
+			return;
+		}
+		
 		File targetFile = null;
 		JarFile jarFile = null;
 		try {
@@ -115,6 +216,77 @@ public class JarUtils {
 		}
 	}
 
+	/**
+	 * Extrai os arquivos de um arquivo jar para um diretrio utilizando vrias threads.
+	 * Os diretrios so criados uma nica vez a partir da lista de entradas e cada thread l o jar atravs do seu prprio ZipFile.
+	 * A quantidade de threads  definida por {@link #threads(Integer)} (padro: quantidade de processadores) e
+	 * o executor por {@link #executor(ExecutorService)}.
+	 * Diferente de {@link #extractFiles(String, String, boolean)} os erros de I/O de cada entrada so devolvidos no resultado.
+	 * Veja {@link #incremental(boolean)} para gravar somente as entradas alteradas.
+	 * Exemplo de utilizao:
+	 * <pre>
+	 *  ExtractResult result = new JarUtils().threads(4).extractFilesParallel("target/URei.jar", "target/extract", false);
+	 *  for(Entry&lt;String, IOException&gt; error : result.getErrors().entrySet()){
+	 *    System.out.println(error.getKey() + " : " + error.getValue().getMessage());
+	 *  }
+	 * </pre>
+	 * @param jarFilePath caminho do arquivo jar a ser extrado ex: config\ambienteconfig.jar
+	 * @param targetFolder caminho do diretrio raiz onde os arquivos sero extrados ex: config\extract
+	 * @param extractMetaInf false para no extrair os caminhos que contiverem o nome META-INF
+	 * @return ExtractResult com a quantidade de arquivos extrados e os erros por entrada
+	 * @throws IOException quando no for possvel ler o arquivo jar
+	 */
+	public ExtractResult extractFilesParallel(String jarFilePath, String targetFolder, boolean extractMetaInf) throws IOException {
+		if(jarFilePath == null || "".equals(jarFilePath)){
+			throw new IllegalArgumentException("Parametro jarFilePath no pode ser vazio ou nulo.");
+		}
+		if(targetFolder == null){
+			throw new IllegalArgumentException("Parametro targetFolder no pode ser nulo.");
+		}
+		if(!targetFolder.endsWith(Character.toString(File.separatorChar))){
+			targetFolder += File.separatorChar;
+		}
+		int workers = this.threads != null && this.threads > 0 ? this.threads : Runtime.getRuntime().availableProcessors();
+		if(this.executorService != null){
+			return new ParallelJarExtractor(jarFilePath, targetFolder, this.executorService, workers, this.incremental, this.deleteRemoved).extract(extractMetaInf);
+		}
+		ExecutorService executorService = Executors.newFixedThreadPool(workers);
+		try {
+			return new ParallelJarExtractor(jarFilePath, targetFolder, executorService, workers, this.incremental, this.deleteRemoved).extract(extractMetaInf);
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	/**
+	 * Extrai os arquivos de um jar lido de um InputStream, gravando cada entrada assim que ela  lida,
+	 * o que permite extrair diretamente de um download sem gravar o jar em disco antes.
+	 * O InputStream no  fechado por este mtodo.
+	 * Exemplo de utilizao:
+	 * <pre>
+	 *  InputStream is = new DownloadFile(output, "http://servidor/jars").getInputStream("ambiente-config.jar");
+	 *  ExtractResult result = new JarUtils().extractFilesFromStream(is, "target/extract", false);
+	 * </pre>
+	 * @param inputStream stream com o contedo do arquivo jar
+	 * @param targetFolder caminho do diretrio raiz onde os arquivos sero extrados ex: config\extract
+	 * @param extractMetaInf false para no extrair os caminhos que contiverem o nome META-INF
+	 * @return ExtractResult com a quantidade de arquivos extrados e os erros de escrita por entrada
+	 * @throws IOException quando houver problemas ao ler o stream
+	 * @see org.reichel.download.DownloadFile#downloadAndExtract(String, String, boolean, String)
+	 */
+	public ExtractResult extractFilesFromStream(InputStream inputStream, String targetFolder, boolean extractMetaInf) throws IOException {
+		if(inputStream == null){
+			throw new IllegalArgumentException("Parametro inputStream no pode ser nulo.");
+		}
+		if(targetFolder == null){
+			throw new IllegalArgumentException("Parametro targetFolder no pode ser nulo.");
+		}
+		if(!targetFolder.endsWith(Character.toString(File.separatorChar))){
+			targetFolder += File.separatorChar;
+		}
+		return new StreamJarExtractor(targetFolder).extract(inputStream, extractMetaInf);
+	}
+
 	/**
 	 * Mtodo para facilitar a recuperar a verso de um jar.
 	 * @param jarFilePath caminho do arquivo jar
@@ -125,10 +297,7 @@ public class JarUtils {
 		if(jarFilePath == null || "".equals(jarFilePath)){
 			throw new IllegalArgumentException("Parametro jarFilePath no pode ser nulo.");
 		}
-		String jarAttributeVersion = getJarAttribute(jarFilePath, "Implementation-Version");
-		String jarType = getJarAttribute(jarFilePath, "Jar-Type");
-		JarTypeEnum jarTypeEnum = (jarType == null || "".equals(jarType))? JarTypeEnum.JAR : JarTypeEnum.fromType(jarType);
-		return jarAttributeVersion != null? new JarVersion(jarAttributeVersion, getFileName(jarFilePath), jarTypeEnum) : null;
+		return readJarVersion(jarFilePath, getFileName(jarFilePath));
 	}
 
 	public JarVersion getJarVersion(String rootFolder, String jarFilePath) throws IOException{
@@ -140,10 +309,41 @@ public class JarUtils {
 		}
 		
 		String relativeJarFilePath = jarFilePath.substring(rootFolder.length() + 1);
-		String jarAttributeVersion = getJarAttribute(jarFilePath, "Implementation-Version");
-		String jarType = getJarAttribute(jarFilePath, "Jar-Type");
+		return readJarVersion(jarFilePath, relativeJarFilePath);
+	}
+	
+	/**
+	 * Recupera a verso de um jar encontrado na varredura, consultando o ndice quando configurado.
+	 */
+	JarVersion getJarVersion(String rootFolder, File file) throws IOException {
+		String absolutePath = file.getAbsolutePath();
+		if(this.versionIndex == null){
+			return getJarVersion(rootFolder, absolutePath);
+		}
+		String relativePath = absolutePath.substring(rootFolder.length() + 1);
+		long size = file.length();
+		long lastModified = file.lastModified();
+		if(this.versionIndex.isUpToDate(relativePath, size, lastModified)){
+			return this.versionIndex.get(relativePath);
+		}
+		JarVersion jarVersion = getJarVersion(rootFolder, absolutePath);
+		this.versionIndex.put(relativePath, size, lastModified, jarVersion);
+		return jarVersion;
+	}
+	
+	/**
+	 * Abre o jar uma nica vez para ler 'Implementation-Version' e 'Jar-Type', liberando o arquivo ao final.
+	 */
+	private JarVersion readJarVersion(String jarFilePath, String fileName) throws IOException {
+		Map<String, String> attributes = getJarAttributes(jarFilePath, "Implementation-Version", "Jar-Type");
+		String jarAttributeVersion = attributes.get("Implementation-Version");
+		String jarType = attributes.get("Jar-Type");
 		JarTypeEnum jarTypeEnum = (jarType == null || "".equals(jarType))? JarTypeEnum.JAR : JarTypeEnum.fromType(jarType);
-		return jarAttributeVersion != null? new JarVersion(jarAttributeVersion, relativeJarFilePath, jarTypeEnum) : null;
+		return jarAttributeVersion != null? newJarVersion(jarAttributeVersion, fileName, jarTypeEnum) : null;
+	}
+	
+	private JarVersion newJarVersion(String fullVersion, String fileName, JarTypeEnum jarTypeEnum) {
+		return this.versionCache != null ? this.versionCache.get(fullVersion, fileName, jarTypeEnum) : new JarVersion(fullVersion, fileName, jarTypeEnum);
 	}
 	
 	private String getFileName(String filePath) {
@@ -161,20 +361,51 @@ public class JarUtils {
 	 * @throws IOException se algum problema ocorrer ao ler o arquivo jar.
 	 */
 	public String getJarAttribute(String jarFilePath, String attribute) throws IOException{
-		JarFile jarFile = new JarFile(jarFilePath);
-		String attributeValue = null;
-		if(jarFile != null){
-			Manifest manifest = jarFile.getManifest();
-			if(manifest != null){
-				Attributes mainAttributes = manifest.getMainAttributes();
-				if(mainAttributes != null){
-					attributeValue = mainAttributes.getValue(attribute);
+		return getJarAttributes(jarFilePath, attribute).get(attribute);
+	}
+	
+	/**
+	 * Recupera vrios atributos do arquivo MANIFEST.MF de um arquivo jar com uma nica leitura.
+	 * O manifesto  localizado diretamente pelo diretrio central do zip, sem montar a lista de entradas do jar.
+	 * Para cada atributo vale a mesma regra de {@link #getJarAttribute(String, String)}: primeiro os atributos principais,
+	 * depois as sees do manifesto.
+	 * Exemplo de utilizao:
+	 * <pre>
+	 *   Map&lt;String, String&gt; attributes = new JarUtils().getJarAttributes("target/urei.jar", "Implementation-Version", "Jar-Type");
+	 * </pre>
+	 * @param jarFilePath caminho do arquivo jar
+	 * @param attributes nomes dos atributos desejados
+	 * @return Map&lt;String,String&gt; com os atributos encontrados, os no encontrados ficam fora do mapa
+	 * @throws IOException se algum problema ocorrer ao ler o arquivo jar.
+	 */
+	public Map<String, String> getJarAttributes(String jarFilePath, String... attributes) throws IOException{
+		if(jarFilePath == null || "".equals(jarFilePath)){
+			throw new IllegalArgumentException("Parametro jarFilePath no pode ser nulo.");
+		}
+		Map<String, String> result = new HashMap<String, String>();
+		Manifest manifest = ManifestReader.read(jarFilePath);
+		if(manifest != null && attributes != null){
+			for(String attribute : attributes){
+				String attributeValue = getAttribute(manifest, attribute);
+				if(attributeValue != null){
+					result.put(attribute, attributeValue);
 				}
-				if(attributeValue == null){
-					for(Entry<String, Attributes> att : jarFile.getManifest().getEntries().entrySet()){
-						if((attributeValue = att.getValue().getValue(attribute)) != null){
-							break;
-						}
+			}
+		}
+		return result;
+	}
+	
+	private String getAttribute(Manifest manifest, String attribute) {
+		String attributeValue = null;
+		if(manifest != null){
+			Attributes mainAttributes = manifest.getMainAttributes();
+			if(mainAttributes != null){
+				attributeValue = mainAttributes.getValue(attribute);
+			}
+			if(attributeValue == null){
+				for(Entry<String, Attributes> att : manifest.getEntries().entrySet()){
+					if((attributeValue = att.getValue().getValue(attribute)) != null){
+						break;
 					}
 				}
 			}
@@ -263,6 +494,28 @@ public class JarUtils {
 	}
 	
 	private Map<String, JarVersion> getJarVersions(String rootFolder, String targetFolder, Map<String,JarVersion> jarVersions, String... exceptions) throws IOException{
+		Map<String, JarVersion> result = new HashMap<String, JarVersion>();
+		if(this.executorService != null){
+			new ParallelJarScanner(this, this.executorService, rootFolder, exceptions).scan(targetFolder, result);
+		} else if(this.threads != null && this.threads > 1){
+			ExecutorService executorService = Executors.newFixedThreadPool(this.threads);
+			try {
+				new ParallelJarScanner(this, executorService, rootFolder, exceptions).scan(targetFolder, result);
+			} finally {
+				executorService.shutdownNow();
+			}
+		} else {
+			getJarVersionsSerial(rootFolder, targetFolder, result, exceptions);
+		}
+		if(this.versionIndex != null){
+			this.versionIndex.retain(result.keySet());
+			this.versionIndex.store();
+		}
+		jarVersions.putAll(result);
+		return jarVersions;
+	}
+	
+	private Map<String, JarVersion> getJarVersionsSerial(String rootFolder, String targetFolder, Map<String,JarVersion> jarVersions, String... exceptions) throws IOException{
 		File targetFolderFile = new File(targetFolder);
 		File file = null;
 		if(targetFolderFile.exists()){
@@ -272,21 +525,21 @@ public class JarUtils {
 						file = new File(targetFolderFile.getAbsolutePath() + File.separatorChar + filePath);
 						if(file.exists()){
 							 if(file.isDirectory()){
-								 getJarVersions(rootFolder, file.getAbsolutePath(), jarVersions, exceptions);
+								 getJarVersionsSerial(rootFolder, file.getAbsolutePath(), jarVersions, exceptions);
 							 } else if(file.getAbsolutePath().toLowerCase().endsWith(".jar")) {
-								 jarVersions.put(file.getAbsolutePath().substring(rootFolder.length() + 1), getJarVersion(rootFolder, file.getAbsolutePath()));
+								 jarVersions.put(file.getAbsolutePath().substring(rootFolder.length() + 1), getJarVersion(rootFolder, file));
 							 }
 						}
 					}
 				}
 			} else if(targetFolderFile.getAbsolutePath().toLowerCase().endsWith(".jar")){ 
-				jarVersions.put(targetFolderFile.getAbsolutePath().substring(rootFolder.length() + 1), getJarVersion(rootFolder, targetFolderFile.getAbsolutePath()));
+				jarVersions.put(targetFolderFile.getAbsolutePath().substring(rootFolder.length() + 1), getJarVersion(rootFolder, targetFolderFile));
 			}
 		}
 		return jarVersions;
 	}
 	
-	private boolean isException(String absolutePath, String[] exceptions) {
+	boolean isException(String absolutePath, String[] exceptions) {
 		for(String except : exceptions){
 			if(except != null && !"".equals(except) && absolutePath.endsWith(except)){
 				return true;
@@ -314,12 +567,142 @@ public class JarUtils {
 						relativePath += File.separatorChar;
 					}
 				}
-				result.put(relativePath + fileName, new JarVersion(properties.getProperty(key), relativePath + fileName, JarTypeEnum.fromType(properties.getProperty(keyRoot + PROPERTIES_TYPE))));
+				result.put(relativePath + fileName, newJarVersion(properties.getProperty(key), relativePath + fileName, JarTypeEnum.fromType(properties.getProperty(keyRoot + PROPERTIES_TYPE))));
 			}
 		}
 		return result;
 	}
 
+	/**
+	 * Compara o mapa de verses local, ex: {@link #getJarVersions(String, Map, String...)}, com o remoto, ex: {@link #getJarVersions(Properties)},
+	 * gerando o plano de atualizao com os jars adicionados, removidos, atualizados, rebaixados e com tipo alterado.
+	 * Os caminhos so comparados aps {@link #normalizeFileSeparatorChar(String)}. Com {@link #threads(Integer)} ou
+	 * {@link #executor(ExecutorService)} catlogos grandes so comparados em faixas paralelas.
+	 * Exemplo de utilizao:
+	 * <pre>
+	 *   JarUtils jarUtils = new JarUtils();
+	 *   UpdatePlan plan = jarUtils.diff(jarUtils.getJarVersions(rootFolder, new HashMap&lt;String, JarVersion&gt;()), jarUtils.getJarVersions(properties));
+	 *   for(JarVersionChange change : plan.getUpgraded()){
+	 *     System.out.println(change);
+	 *   }
+	 * </pre>
+	 * @param local mapa de verses local
+	 * @param remote mapa de verses remoto
+	 * @return UpdatePlan com as mudanas ordenadas pelo caminho normalizado
+	 * @throws IOException se a comparao paralela for interrompida
+	 */
+	public UpdatePlan diff(Map<String, JarVersion> local, Map<String, JarVersion> remote) throws IOException{
+		if(local == null){
+			throw new IllegalArgumentException("Parametro local no pode ser nulo.");
+		}
+		if(remote == null){
+			throw new IllegalArgumentException("Parametro remote no pode ser nulo.");
+		}
+		JarVersionDiff jarVersionDiff = new JarVersionDiff(this);
+		if(this.executorService != null){
+			int ranges = this.threads != null && this.threads > 1 ? this.threads : Runtime.getRuntime().availableProcessors();
+			return jarVersionDiff.diff(local, remote, this.executorService, ranges);
+		}
+		if(this.threads != null && this.threads > 1 && remote.size() >= 2 * JarVersionDiff.MIN_PARALLEL_RANGE){
+			ExecutorService executorService = Executors.newFixedThreadPool(this.threads);
+			try {
+				return jarVersionDiff.diff(local, remote, executorService, this.threads);
+			} finally {
+				executorService.shutdownNow();
+			}
+		}
+		return jarVersionDiff.diff(local, remote, null, 1);
+	}
+
+	/**
+	 * Gera um patch por entrada que transforma oldJarFilePath em newJarFilePath, percorrendo as entradas
+	 * do jar novo com JarFile.entries() como em {@link #extractFiles(String, String)}.
+	 * Somente as entradas novas ou com CRC-32 ou tamanho diferentes so gravadas no patch.
+	 * Para publicar, grave o patch ao lado do jar completo com o nome {@link #getPatchName(String, String)}.
+	 * Exemplo de utilizao:
+	 * <pre>
+	 *   JarUtils jarUtils = new JarUtils();
+	 *   jarUtils.createPatch("1.0/app.jar", "2.0/app.jar", "2.0/" + jarUtils.getPatchName("app.jar", "1.0/app.jar"));
+	 * </pre>
+	 * @param oldJarFilePath jar da verso anterior
+	 * @param newJarFilePath jar da verso nova
+	 * @param patchFilePath arquivo do patch
+	 * @throws IOException
+	 */
+	public void createPatch(String oldJarFilePath, String newJarFilePath, String patchFilePath) throws IOException {
+		if(oldJarFilePath == null || "".equals(oldJarFilePath)){
+			throw new IllegalArgumentException("Parametro oldJarFilePath no pode ser vazio ou nulo.");
+		}
+		if(newJarFilePath == null || "".equals(newJarFilePath)){
+			throw new IllegalArgumentException("Parametro newJarFilePath no pode ser vazio ou nulo.");
+		}
+		if(patchFilePath == null || "".equals(patchFilePath)){
+			throw new IllegalArgumentException("Parametro patchFilePath no pode ser vazio ou nulo.");
+		}
+		new JarPatch().create(oldJarFilePath, newJarFilePath, patchFilePath);
+	}
+
+	/**
+	 * Aplica em oldJarFilePath um patch gerado por {@link #createPatch(String, String, String)}, gravando o jar novo em targetJarFilePath.
+	 * O jar  gravado em '&lt;targetJarFilePath&gt;.part' e renomeado somente aps todas as entradas conferirem com o CRC-32 do patch,
+	 * targetJarFilePath pode ser o prprio oldJarFilePath.
+	 * @param oldJarFilePath jar da verso anterior, deve ter a mesma chave de contedo da origem do patch
+	 * @param patchFilePath arquivo do patch
+	 * @param targetJarFilePath jar a ser gravado
+	 * @throws IOException se o patch for invlido, no for da verso de oldJarFilePath ou alguma entrada no conferir
+	 */
+	public void applyPatch(String oldJarFilePath, String patchFilePath, String targetJarFilePath) throws IOException {
+		if(oldJarFilePath == null || "".equals(oldJarFilePath)){
+			throw new IllegalArgumentException("Parametro oldJarFilePath no pode ser vazio ou nulo.");
+		}
+		if(patchFilePath == null || "".equals(patchFilePath)){
+			throw new IllegalArgumentException("Parametro patchFilePath no pode ser vazio ou nulo.");
+		}
+		if(targetJarFilePath == null || "".equals(targetJarFilePath)){
+			throw new IllegalArgumentException("Parametro targetJarFilePath no pode ser vazio ou nulo.");
+		}
+		File part = new File(targetJarFilePath + ".part");
+		try {
+			new JarPatch().apply(oldJarFilePath, patchFilePath, part.getPath());
+		} catch (IOException e) {
+			part.delete();
+			throw e;
+		}
+		File target = new File(targetJarFilePath);
+		if(!part.renameTo(target)){
+			target.delete();
+			if(!part.renameTo(target)){
+				part.delete();
+				throw new IOException("No foi possvel renomear '" + part.getAbsolutePath() + "' para '" + target.getAbsolutePath() + "'.");
+			}
+		}
+	}
+
+	/**
+	 * @return chave de contedo do jar: SHA-256 em hexadecimal do nome, CRC-32 e tamanho de cada entrada.
+	 * Jars gerados por {@link #applyPatch(String, String, String)} tm a mesma chave do jar novo, mesmo que os bytes difiram.
+	 * @throws IOException
+	 */
+	public String getContentKey(String jarFilePath) throws IOException {
+		if(jarFilePath == null || "".equals(jarFilePath)){
+			throw new IllegalArgumentException("Parametro jarFilePath no pode ser vazio ou nulo.");
+		}
+		return new JarPatch().getContentKey(jarFilePath);
+	}
+
+	/**
+	 * @param fileName nome do jar publicado, por exemplo 'lib/app.jar'
+	 * @param oldJarFilePath jar da verso anterior a partir da qual o patch  gerado ou aplicado
+	 * @return nome do patch publicado ao lado do jar: '&lt;fileName&gt;.&lt;chave de contedo de oldJarFilePath&gt;.jarpatch'
+	 * @throws IOException
+	 */
+	public String getPatchName(String fileName, String oldJarFilePath) throws IOException {
+		if(fileName == null || "".equals(fileName)){
+			throw new IllegalArgumentException("Parametro fileName no pode ser vazio ou nulo.");
+		}
+		return fileName + "." + getContentKey(oldJarFilePath) + PATCH_EXTENSION;
+	}
+
 	public String normalizeFileSeparatorChar(String filePath) {
 		return filePath.replace("\\", Character.toString(File.separatorChar)).replace("/", Character.toString(File.separatorChar));
 	}
@@ -1,8 +1,5 @@
 package org.reichel.jar;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * Classe que representa uma verso de software.
  * major: Melhorias
@@ -16,20 +13,37 @@ import java.util.regex.Pattern;
  */
 public class JarVersion implements Comparable<JarVersion>{
 
-	private final Integer major;
+	/** Quantidade de bits de cada parte da verso na chave de ordenao. */
+	private static final int SORT_KEY_BITS = 21;
+	
+	private static final int SORT_KEY_MAX = (1 << SORT_KEY_BITS) - 1;
+	
+	private final int major;
+	
+	private final int minor;
 	
-	private final Integer minor;
+	private final int maintenance;
 	
-	private final Integer maintenance;
+	private final long sortKey;
 	
 	private final String fileName;
 	
 	private final JarTypeEnum jarTypeEnum;
 
+	/**
+	 * @param fullVersion verso no formato major[.minor[.maintenance]] ex: 1.5.33
+	 * @param fileName nome ou caminho relativo do arquivo jar
+	 * @param jarTypeEnum tipo do jar
+	 */
 	public JarVersion(String fullVersion, String fileName, JarTypeEnum jarTypeEnum){
-		Pattern pattern = Pattern.compile("(\\d+){1}\\.{0,1}(\\d+){0,}\\.{0,1}(\\d+){0,}");
-		Matcher matcher = pattern.matcher(fullVersion);
-		if(!matcher.matches()){
+		// equivalente  expresso (\d+){1}\.{0,1}(\d+){0,}\.{0,1}(\d+){0,} sem compilar Pattern nem criar Matcher
+		int length = fullVersion.length();
+		int majorEnd = digits(fullVersion, 0);
+		int minorStart = majorEnd < length && fullVersion.charAt(majorEnd) == '.' ? majorEnd + 1 : majorEnd;
+		int minorEnd = digits(fullVersion, minorStart);
+		int maintenanceStart = minorEnd < length && fullVersion.charAt(minorEnd) == '.' ? minorEnd + 1 : minorEnd;
+		int maintenanceEnd = digits(fullVersion, maintenanceStart);
+		if(majorEnd == 0 || maintenanceEnd != length){
 			throw new IllegalArgumentException("Verso: '" + fullVersion + "' no  uma verso vlida, exemplo de verso vlida: 1.5.33");
 		}
 		if(fileName == null || "".equals(fileName)){
@@ -40,9 +54,54 @@ public class JarVersion implements Comparable<JarVersion>{
 		}
 		this.fileName = fileName;
 		this.jarTypeEnum = jarTypeEnum;
-		this.major = Integer.valueOf(matcher.group(1));
-		this.minor = Integer.valueOf(matcher.group(2) == null ? "0" : matcher.group(2));
-		this.maintenance = Integer.valueOf(matcher.group(3) == null ? "0": matcher.group(3));
+		this.major = parseInt(fullVersion, 0, majorEnd);
+		this.minor = parseInt(fullVersion, minorStart, minorEnd);
+		this.maintenance = parseInt(fullVersion, maintenanceStart, maintenanceEnd);
+		this.sortKey = sortKey(this.major, this.minor, this.maintenance);
+	}
+
+	/**
+	 * Cria uma nova instancia com a mesma verso j validada, utilizado por {@link JarVersionCache}.
+	 */
+	JarVersion(JarVersion version, String fileName, JarTypeEnum jarTypeEnum){
+		if(fileName == null || "".equals(fileName)){
+			throw new IllegalArgumentException("Parametro fileName no pode ser nulo.");
+		}
+		if(jarTypeEnum == null){
+			throw new IllegalArgumentException("Parametro jarTypeEnum no pode ser nulo.");
+		}
+		this.fileName = fileName;
+		this.jarTypeEnum = jarTypeEnum;
+		this.major = version.major;
+		this.minor = version.minor;
+		this.maintenance = version.maintenance;
+		this.sortKey = version.sortKey;
+	}
+
+	private static int digits(String text, int position) {
+		while(position < text.length() && text.charAt(position) >= '0' && text.charAt(position) <= '9'){
+			position++;
+		}
+		return position;
+	}
+
+	private static int parseInt(String text, int start, int end) {
+		long value = 0;
+		for(int i = start; i < end; i++){
+			value = value * 10 + (text.charAt(i) - '0');
+			if(value > Integer.MAX_VALUE){
+				// mantm a mesma NumberFormatException da verso anterior
+				return Integer.valueOf(text.substring(start, end));
+			}
+		}
+		return (int) value;
+	}
+
+	private static long sortKey(int major, int minor, int maintenance) {
+		if(major > SORT_KEY_MAX || minor > SORT_KEY_MAX || maintenance > SORT_KEY_MAX){
+			return -1;
+		}
+		return ((long) major << (2 * SORT_KEY_BITS)) | ((long) minor << SORT_KEY_BITS) | maintenance;
 	}
 
 	public Integer getMajor() {
@@ -57,6 +116,14 @@ public class JarVersion implements Comparable<JarVersion>{
 		return maintenance;
 	}
 
+	/**
+	 * Chave de ordenao com major, minor e maintenance em 21 bits cada, comparar duas chaves equivale a {@link #compareTo(JarVersion)}.
+	 * @return a chave ou -1 se alguma parte da verso for maior que 2097151, caso em que deve ser utilizado compareTo
+	 */
+	public long getSortKey() {
+		return sortKey;
+	}
+
 	@Override
 	public String toString(){
 		return this.major + "." + this.minor + "." + maintenance;
@@ -76,17 +143,19 @@ public class JarVersion implements Comparable<JarVersion>{
 			return 1;
 		}
 		
-		int major = this.getMajor().compareTo(o.getMajor());
-		if(major != 0){
-			return major;
+		if(this.sortKey >= 0 && o.sortKey >= 0){
+			return this.sortKey < o.sortKey ? -1 : (this.sortKey == o.sortKey ? 0 : 1);
+		}
+		
+		if(this.major != o.major){
+			return this.major < o.major ? -1 : 1;
 		}
 		
-		int minor = this.getMinor().compareTo(o.getMinor());
-		if(minor != 0){
-			return minor;
+		if(this.minor != o.minor){
+			return this.minor < o.minor ? -1 : 1;
 		}
 		
-		return this.getMaintenance().compareTo(o.getMaintenance());
+		return this.maintenance < o.maintenance ? -1 : (this.maintenance == o.maintenance ? 0 : 1);
 	}
 	
 }
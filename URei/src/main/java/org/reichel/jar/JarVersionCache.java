@@ -0,0 +1,68 @@
+package org.reichel.jar;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache opcional de instancias de JarVersion.
+ * Cada texto de verso  interpretado uma nica vez e verses idnticas do mesmo arquivo e tipo
+ * compartilham a mesma instancia imutvel, reduzindo a criao de objetos em varreduras e catlogos repetidos.
+ * Exemplo de utilizao:
+ * <pre>
+ *   JarVersionCache cache = new JarVersionCache();
+ *   Map&lt;String,JarVersion&gt; remote = new JarUtils().versionCache(cache).getJarVersions(properties);
+ * </pre>
+ * @author Markus Reichel
+ */
+public class JarVersionCache {
+
+	private final ConcurrentMap<String, JarVersion> versions = new ConcurrentHashMap<String, JarVersion>();
+
+	private final ConcurrentMap<String, ConcurrentMap<String, JarVersion>> instances = new ConcurrentHashMap<String, ConcurrentMap<String, JarVersion>>();
+
+	/**
+	 * @param fullVersion verso no formato major[.minor[.maintenance]] ex: 1.5.33
+	 * @param fileName nome ou caminho relativo do arquivo jar
+	 * @param jarTypeEnum tipo do jar
+	 * @return a instancia compartilhada para os parametros, com as mesmas validaes do construtor de JarVersion
+	 */
+	public JarVersion get(String fullVersion, String fileName, JarTypeEnum jarTypeEnum){
+		ConcurrentMap<String, JarVersion> byFileName = this.instances.get(fullVersion);
+		if(byFileName != null && fileName != null){
+			JarVersion jarVersion = byFileName.get(fileName);
+			if(jarVersion != null && jarVersion.getJarTypeEnum() == jarTypeEnum){
+				return jarVersion;
+			}
+		}
+		JarVersion parsed = this.versions.get(fullVersion);
+		if(parsed == null){
+			parsed = new JarVersion(fullVersion, fileName, jarTypeEnum);
+			JarVersion previous = this.versions.putIfAbsent(fullVersion, parsed);
+			if(previous != null){
+				parsed = previous;
+			}
+		}
+		JarVersion jarVersion = parsed.getFileName().equals(fileName) && parsed.getJarTypeEnum() == jarTypeEnum ? parsed : new JarVersion(parsed, fileName, jarTypeEnum);
+		if(byFileName == null){
+			byFileName = new ConcurrentHashMap<String, JarVersion>();
+			ConcurrentMap<String, JarVersion> previous = this.instances.putIfAbsent(fullVersion, byFileName);
+			if(previous != null){
+				byFileName = previous;
+			}
+		}
+		byFileName.put(fileName, jarVersion);
+		return jarVersion;
+	}
+
+	/**
+	 * @return quantidade de textos de verso distintos no cache
+	 */
+	public int size(){
+		return this.versions.size();
+	}
+
+	public void clear(){
+		this.instances.clear();
+		this.versions.clear();
+	}
+}
@@ -0,0 +1,60 @@
+package org.reichel.jar;
+
+/**
+ * Mudana de um jar entre o mapa local e o mapa remoto.
+ * @author Markus Reichel
+ * @see UpdatePlan
+ */
+public class JarVersionChange {
+
+	private final String path;
+
+	private final JarVersion local;
+
+	private final JarVersion remote;
+
+	private final ChangeTypeEnum changeTypeEnum;
+
+	public JarVersionChange(String path, JarVersion local, JarVersion remote, ChangeTypeEnum changeTypeEnum){
+		if(path == null){
+			throw new IllegalArgumentException("Parametro path no pode ser nulo.");
+		}
+		if(changeTypeEnum == null){
+			throw new IllegalArgumentException("Parametro changeTypeEnum no pode ser nulo.");
+		}
+		this.path = path;
+		this.local = local;
+		this.remote = remote;
+		this.changeTypeEnum = changeTypeEnum;
+	}
+
+	/**
+	 * @return caminho relativo normalizado com {@link JarUtils#normalizeFileSeparatorChar(String)}
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return verso local ou null se o jar no existe localmente ou no possui verso
+	 */
+	public JarVersion getLocal() {
+		return local;
+	}
+
+	/**
+	 * @return verso remota ou null se o jar no existe no catlogo remoto
+	 */
+	public JarVersion getRemote() {
+		return remote;
+	}
+
+	public ChangeTypeEnum getChangeTypeEnum() {
+		return changeTypeEnum;
+	}
+
+	@Override
+	public String toString(){
+		return this.changeTypeEnum + " " + this.path + " " + this.local + " -> " + this.remote;
+	}
+}
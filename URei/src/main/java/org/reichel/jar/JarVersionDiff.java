@@ -0,0 +1,170 @@
+package org.reichel.jar;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Comparao entre dois mapas de verses por intercalao (merge) dos caminhos normalizados e ordenados.
+ * Com um ExecutorService os caminhos remotos so divididos em faixas contguas e cada faixa  intercalada
+ * com a faixa correspondente do mapa local em paralelo, as faixas so concatenadas em ordem ao final.
+ * @author Markus Reichel
+ * @see JarUtils#diff(Map, Map)
+ */
+class JarVersionDiff {
+
+	/** Abaixo desta quantidade de caminhos por faixa a intercalao  feita na thread chamadora. */
+	static final int MIN_PARALLEL_RANGE = 16 * 1024;
+
+	private final JarUtils jarUtils;
+
+	JarVersionDiff(JarUtils jarUtils){
+		this.jarUtils = jarUtils;
+	}
+
+	UpdatePlan diff(Map<String, JarVersion> local, Map<String, JarVersion> remote, ExecutorService executorService, int ranges) throws IOException {
+		final Item[] localItems = sort(local);
+		final Item[] remoteItems = sort(remote);
+		ranges = Math.min(ranges, remoteItems.length / MIN_PARALLEL_RANGE);
+		if(executorService == null || ranges < 2){
+			UpdatePlan plan = new UpdatePlan();
+			merge(localItems, 0, localItems.length, remoteItems, 0, remoteItems.length, plan);
+			return plan;
+		}
+
+		List<Future<UpdatePlan>> futures = new ArrayList<Future<UpdatePlan>>();
+		int localStart = 0;
+		for(int range = 0; range < ranges; range++){
+			final int remoteStart = remoteItems.length * range / ranges;
+			final int remoteEnd = remoteItems.length * (range + 1) / ranges;
+			final int rangeLocalStart = localStart;
+			final int rangeLocalEnd = range == ranges - 1 ? localItems.length : lowerBound(localItems, remoteItems[remoteEnd].path);
+			localStart = rangeLocalEnd;
+			futures.add(executorService.submit(new Callable<UpdatePlan>() {
+				@Override
+				public UpdatePlan call() {
+					UpdatePlan plan = new UpdatePlan();
+					merge(localItems, rangeLocalStart, rangeLocalEnd, remoteItems, remoteStart, remoteEnd, plan);
+					return plan;
+				}
+			}));
+		}
+		UpdatePlan plan = new UpdatePlan();
+		for(Future<UpdatePlan> future : futures){
+			try {
+				plan.append(future.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Comparao interrompida.");
+			} catch (ExecutionException e) {
+				if(e.getCause() instanceof RuntimeException){
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IOException("Problemas na comparao: " + e.getCause());
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * Intercala as faixas [localStart, localEnd) e [remoteStart, remoteEnd), que devem cobrir os mesmos caminhos.
+	 */
+	private void merge(Item[] local, int localStart, int localEnd, Item[] remote, int remoteStart, int remoteEnd, UpdatePlan plan) {
+		int i = localStart;
+		int j = remoteStart;
+		while(i < localEnd || j < remoteEnd){
+			int compare = i == localEnd ? 1 : (j == remoteEnd ? -1 : local[i].path.compareTo(remote[j].path));
+			if(compare < 0){
+				plan.add(local[i].path, local[i].version, null, ChangeTypeEnum.REMOVED);
+				i++;
+			} else if(compare > 0){
+				plan.add(remote[j].path, null, remote[j].version, ChangeTypeEnum.ADDED);
+				j++;
+			} else {
+				compare(local[i], remote[j], plan);
+				i++;
+				j++;
+			}
+		}
+	}
+
+	private void compare(Item local, Item remote, UpdatePlan plan) {
+		JarVersion localVersion = local.version;
+		JarVersion remoteVersion = remote.version;
+		if(remoteVersion == null){
+			plan.unchanged();
+		} else if(localVersion == null){
+			plan.add(local.path, null, remoteVersion, ChangeTypeEnum.UPGRADED);
+		} else if(localVersion.getJarTypeEnum() != remoteVersion.getJarTypeEnum()){
+			plan.add(local.path, localVersion, remoteVersion, ChangeTypeEnum.TYPE_CHANGED);
+		} else {
+			int compare = localVersion.compareTo(remoteVersion);
+			if(compare < 0){
+				plan.add(local.path, localVersion, remoteVersion, ChangeTypeEnum.UPGRADED);
+			} else if(compare > 0){
+				plan.add(local.path, localVersion, remoteVersion, ChangeTypeEnum.DOWNGRADED);
+			} else {
+				plan.unchanged();
+			}
+		}
+	}
+
+	/**
+	 * @return itens ordenados pelo caminho normalizado, em caminhos repetidos aps a normalizao prevalece o ltimo
+	 */
+	private Item[] sort(Map<String, JarVersion> versions) {
+		Item[] items = new Item[versions.size()];
+		int index = 0;
+		for(Map.Entry<String, JarVersion> entry : versions.entrySet()){
+			items[index++] = new Item(this.jarUtils.normalizeFileSeparatorChar(entry.getKey()), entry.getValue());
+		}
+		Arrays.sort(items);
+		int size = 0;
+		for(int i = 0; i < items.length; i++){
+			if(size > 0 && items[size - 1].path.equals(items[i].path)){
+				items[size - 1] = items[i];
+			} else {
+				items[size++] = items[i];
+			}
+		}
+		return size == items.length ? items : Arrays.copyOf(items, size);
+	}
+
+	private int lowerBound(Item[] items, String path) {
+		int low = 0;
+		int high = items.length;
+		while(low < high){
+			int middle = (low + high) >>> 1;
+			if(items[middle].path.compareTo(path) < 0){
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private static class Item implements Comparable<Item> {
+
+		private final String path;
+
+		private final JarVersion version;
+
+		private Item(String path, JarVersion version){
+			this.path = path;
+			this.version = version;
+		}
+
+		@Override
+		public int compareTo(Item o) {
+			return this.path.compareTo(o.path);
+		}
+	}
+}
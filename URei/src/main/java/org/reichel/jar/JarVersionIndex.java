@@ -0,0 +1,194 @@
+package org.reichel.jar;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+import org.reichel.properties.SortedProperties;
+
+/**
+ * ndice persistente das verses de jars de um diretrio raiz, chaveado pelo caminho relativo do jar
+ * junto com o tamanho e a data de modificao do arquivo.
+ * Utilizado por {@link JarUtils#getJarVersions(String, Map, String...)} para reabrir somente os jars novos ou alterados,
+ * as entradas de jars que no existem mais so descartadas ao final de cada varredura.
+ * Exemplo de utilizao:
+ * <pre>
+ *   JarVersionIndex index = new JarVersionIndex("config/jar-versions.index");
+ *   Map&lt;String, JarVersion&gt; jarVersions = new JarUtils().versionIndex(index).getJarVersions(rootFolder, new HashMap&lt;String, JarVersion&gt;());
+ * </pre>
+ * Um ndice deve ser utilizado sempre com o mesmo diretrio raiz.
+ * @author Markus Reichel
+ */
+public class JarVersionIndex {
+
+	private static final Logger logger = Logger.getLogger(JarVersionIndex.class);
+
+	public static String PROPERTIES_SIZE = ".size";
+	public static String PROPERTIES_LAST_MODIFIED = ".lastModified";
+
+	private final File indexFile;
+
+	private final Map<String, IndexEntry> entries = new ConcurrentHashMap<String, IndexEntry>();
+
+	private volatile boolean modified = false;
+
+	public JarVersionIndex(String indexFilePath){
+		if(indexFilePath == null || "".equals(indexFilePath)){
+			throw new IllegalArgumentException("Parametro indexFilePath no pode ser vazio ou nulo.");
+		}
+		this.indexFile = new File(indexFilePath);
+		if(this.indexFile.exists()){
+			load();
+		}
+	}
+
+	/**
+	 * Recarrega o ndice do disco, descartando as entradas em memria.
+	 * Entradas invlidas so ignoradas e o jar correspondente ser relido na prxima varredura.
+	 * @return a instancia de JarVersionIndex
+	 */
+	public JarVersionIndex load(){
+		this.entries.clear();
+		SortedProperties properties = new SortedProperties();
+		InputStream is = null;
+		try {
+			is = new FileInputStream(this.indexFile);
+			properties.load(is);
+		} catch (IOException e) {
+			logger.error("Erro ao carregar ndice '" + this.indexFile.getAbsolutePath() + "'. " + e.getClass().getName() + ":" + e.getMessage());
+		} finally {
+			close(is);
+		}
+		Enumeration<Object> keys = properties.keys();
+		while(keys.hasMoreElements()){
+			String key = keys.nextElement().toString();
+			if(key.endsWith(PROPERTIES_SIZE)){
+				String relativePath = key.substring(0, key.length() - PROPERTIES_SIZE.length());
+				try {
+					long size = Long.parseLong(properties.getProperty(key));
+					long lastModified = Long.parseLong(properties.getProperty(relativePath + PROPERTIES_LAST_MODIFIED));
+					String version = properties.getProperty(relativePath + JarUtils.PROPERTIES_VERSION, "");
+					JarTypeEnum jarTypeEnum = JarTypeEnum.fromType(properties.getProperty(relativePath + JarUtils.PROPERTIES_TYPE));
+					JarVersion jarVersion = "".equals(version) ? null : new JarVersion(version, relativePath, jarTypeEnum == null ? JarTypeEnum.JAR : jarTypeEnum);
+					this.entries.put(relativePath, new IndexEntry(size, lastModified, jarVersion));
+				} catch (RuntimeException e) {
+					logger.error("Entrada invlida no ndice '" + relativePath + "': " + e.getMessage());
+				}
+			}
+		}
+		this.modified = false;
+		return this;
+	}
+
+	/**
+	 * Grava o ndice em disco caso tenha sido alterado desde a ltima gravao ou carga.
+	 * @return a instancia de JarVersionIndex
+	 * @throws IOException quando houver problemas ao escrever o arquivo
+	 */
+	public JarVersionIndex store() throws IOException {
+		if(!this.modified){
+			return this;
+		}
+		SortedProperties properties = new SortedProperties();
+		for(Map.Entry<String, IndexEntry> entry : this.entries.entrySet()){
+			String relativePath = entry.getKey();
+			IndexEntry indexEntry = entry.getValue();
+			properties.setProperty(relativePath + PROPERTIES_SIZE, Long.toString(indexEntry.size));
+			properties.setProperty(relativePath + PROPERTIES_LAST_MODIFIED, Long.toString(indexEntry.lastModified));
+			if(indexEntry.jarVersion != null){
+				properties.setProperty(relativePath + JarUtils.PROPERTIES_VERSION, indexEntry.jarVersion.toString());
+				properties.setProperty(relativePath + JarUtils.PROPERTIES_TYPE, indexEntry.jarVersion.getJarTypeEnum().getType());
+			}
+		}
+		File parent = this.indexFile.getAbsoluteFile().getParentFile();
+		if(parent != null && !parent.exists()){
+			parent.mkdirs();
+		}
+		OutputStream os = new FileOutputStream(this.indexFile);
+		try {
+			properties.store(os, "JarVersionIndex");
+		} finally {
+			close(os);
+		}
+		this.modified = false;
+		return this;
+	}
+
+	/**
+	 * @return true se existir entrada para o caminho relativo com o mesmo tamanho e data de modificao
+	 */
+	public boolean isUpToDate(String relativePath, long size, long lastModified){
+		IndexEntry indexEntry = this.entries.get(relativePath);
+		return indexEntry != null && indexEntry.size == size && indexEntry.lastModified == lastModified;
+	}
+
+	/**
+	 * @return JarVersion registrado para o caminho relativo ou null se no existir ou o jar no possuir verso
+	 */
+	public JarVersion get(String relativePath){
+		IndexEntry indexEntry = this.entries.get(relativePath);
+		return indexEntry != null ? indexEntry.jarVersion : null;
+	}
+
+	public void put(String relativePath, long size, long lastModified, JarVersion jarVersion){
+		this.entries.put(relativePath, new IndexEntry(size, lastModified, jarVersion));
+		this.modified = true;
+	}
+
+	/**
+	 * Remove do ndice os caminhos que no esto na coleo informada.
+	 * @param relativePaths caminhos relativos encontrados na ltima varredura
+	 */
+	public void retain(Collection<String> relativePaths){
+		Iterator<String> iterator = this.entries.keySet().iterator();
+		while(iterator.hasNext()){
+			if(!relativePaths.contains(iterator.next())){
+				iterator.remove();
+				this.modified = true;
+			}
+		}
+	}
+
+	public int size(){
+		return this.entries.size();
+	}
+
+	public File getIndexFile() {
+		return indexFile;
+	}
+
+	private void close(Closeable closeable) {
+		if(closeable != null){
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				logger.error("Problemas ao liberar recursos: " + e.getMessage());
+			}
+		}
+	}
+
+	private static class IndexEntry {
+
+		private final long size;
+
+		private final long lastModified;
+
+		private final JarVersion jarVersion;
+
+		private IndexEntry(long size, long lastModified, JarVersion jarVersion){
+			this.size = size;
+			this.lastModified = lastModified;
+			this.jarVersion = jarVersion;
+		}
+	}
+}
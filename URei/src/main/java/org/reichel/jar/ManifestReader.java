@@ -0,0 +1,245 @@
+package org.reichel.jar;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Leitura do META-INF/MANIFEST.MF de um jar sem montar a tabela completa de entradas do JarFile.
+ * O registro final (end of central directory)  localizado no fim do arquivo e o diretrio central  percorrido
+ * com leituras posicionais no FileChannel at encontrar o manifesto, que normalmente  uma das primeiras entradas.
+ * Bytes anteriores aos dados do zip (por exemplo o script de um jar executvel) so descontados dos deslocamentos,
+ * como faz o JarFile. Arquivos zip64, com mtodos de compresso diferentes de STORED/DEFLATED ou com assinaturas
+ * inesperadas so lidos atravs do JarFile.
+ * @author Markus Reichel
+ */
+class ManifestReader {
+
+	private static final Logger logger = Logger.getLogger(ManifestReader.class);
+
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int CENTRAL_SIGNATURE = 0x02014b50;
+	private static final int LOCAL_SIGNATURE = 0x04034b50;
+
+	private static final int END_HEADER_SIZE = 22;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final byte[] MANIFEST_NAME = JarFile.MANIFEST_NAME.getBytes();
+
+	private final String jarFilePath;
+
+	private final FileChannel channel;
+
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+	private long bufferPosition = -1;
+
+	private long base;
+
+	private ManifestReader(String jarFilePath, FileChannel channel){
+		this.jarFilePath = jarFilePath;
+		this.channel = channel;
+	}
+
+	/**
+	 * @param jarFilePath caminho do arquivo jar
+	 * @return Manifest do jar ou null se o jar no possuir META-INF/MANIFEST.MF
+	 * @throws IOException se o arquivo no for um zip vlido ou ocorrer problema na leitura
+	 */
+	static Manifest read(String jarFilePath) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(jarFilePath, "r");
+		try {
+			return new ManifestReader(jarFilePath, randomAccessFile.getChannel()).read();
+		} finally {
+			try {
+				randomAccessFile.close();
+			} catch (IOException e) {
+				logger.error("Problemas ao liberar recursos: " + jarFilePath + " " + e.getMessage());
+			}
+		}
+	}
+
+	private Manifest read() throws IOException {
+		long fileSize = this.channel.size();
+		int tailSize = (int) Math.min(fileSize, END_HEADER_SIZE + MAX_COMMENT_SIZE);
+		if(tailSize < END_HEADER_SIZE){
+			throw new ZipException("Arquivo '" + this.jarFilePath + "' no  um arquivo zip vlido.");
+		}
+		// sem comentrio o registro final ocupa exatamente os ltimos 22 bytes
+		ByteBuffer tail = fill(fileSize - END_HEADER_SIZE, END_HEADER_SIZE);
+		long endPosition = -1;
+		if(tail.getInt(0) == END_SIGNATURE){
+			endPosition = fileSize - END_HEADER_SIZE;
+		} else {
+			tail = fill(fileSize - tailSize, tailSize);
+			for(int i = tailSize - END_HEADER_SIZE; i >= 0; i--){
+				if(tail.getInt(i) == END_SIGNATURE){
+					endPosition = this.bufferPosition + i;
+					break;
+				}
+			}
+		}
+		if(endPosition == -1){
+			throw new ZipException("Arquivo '" + this.jarFilePath + "' no  um arquivo zip vlido.");
+		}
+		int end = (int) (endPosition - this.bufferPosition);
+		int totalEntries = tail.getShort(end + 10) & 0xFFFF;
+		long centralSize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+		long centralOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+		if(totalEntries == 0xFFFF || centralSize == 0xFFFFFFFFL || centralOffset == 0xFFFFFFFFL){
+			return readWithJarFile();
+		}
+
+		// deslocamentos do zip so relativos ao incio dos dados, que pode vir depois de um prembulo
+		this.base = endPosition - centralSize - centralOffset;
+		if(this.base < 0){
+			return readWithJarFile();
+		}
+		long position = this.base + centralOffset;
+		long centralEnd = position + centralSize;
+		while(position + CENTRAL_HEADER_SIZE <= centralEnd){
+			ByteBuffer header = fill(position, CENTRAL_HEADER_SIZE);
+			int offset = (int) (position - this.bufferPosition);
+			if(header.getInt(offset) != CENTRAL_SIGNATURE){
+				logger.debug("Diretrio central inesperado em '" + this.jarFilePath + "', lendo atravs do JarFile.");
+				return readWithJarFile();
+			}
+			int method = header.getShort(offset + 10) & 0xFFFF;
+			long compressedSize = header.getInt(offset + 20) & 0xFFFFFFFFL;
+			long size = header.getInt(offset + 24) & 0xFFFFFFFFL;
+			int nameLength = header.getShort(offset + 28) & 0xFFFF;
+			int extraLength = header.getShort(offset + 30) & 0xFFFF;
+			int commentLength = header.getShort(offset + 32) & 0xFFFF;
+			long localOffset = header.getInt(offset + 42) & 0xFFFFFFFFL;
+			if(nameLength == MANIFEST_NAME.length){
+				ByteBuffer name = fill(position + CENTRAL_HEADER_SIZE, nameLength);
+				if(isManifestName(name, (int) (position + CENTRAL_HEADER_SIZE - this.bufferPosition))){
+					if((method != STORED && method != DEFLATED) || size > Integer.MAX_VALUE || compressedSize > Integer.MAX_VALUE){
+						return readWithJarFile();
+					}
+					byte[] entry = readEntry(this.base + localOffset, method, (int) compressedSize, (int) size);
+					return entry == null ? readWithJarFile() : new Manifest(new ByteArrayInputStream(entry));
+				}
+			}
+			position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+		}
+		return null;
+	}
+
+	private boolean isManifestName(ByteBuffer name, int offset) {
+		for(int i = 0; i < MANIFEST_NAME.length; i++){
+			byte b = name.get(offset + i);
+			if(b >= 'a' && b <= 'z'){
+				b -= 'a' - 'A';
+			}
+			if(b != MANIFEST_NAME[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return contedo da entrada ou null se o cabealho local no for o esperado
+	 */
+	private byte[] readEntry(long localOffset, int method, int compressedSize, int size) throws IOException {
+		ByteBuffer header = fill(localOffset, LOCAL_HEADER_SIZE);
+		int offset = (int) (localOffset - this.bufferPosition);
+		if(header.getInt(offset) != LOCAL_SIGNATURE){
+			logger.debug("Cabealho local inesperado para " + JarFile.MANIFEST_NAME + " em '" + this.jarFilePath + "', lendo atravs do JarFile.");
+			return null;
+		}
+		long dataOffset = localOffset + LOCAL_HEADER_SIZE + (header.getShort(offset + 26) & 0xFFFF) + (header.getShort(offset + 28) & 0xFFFF);
+		byte[] data = new byte[compressedSize];
+		readFully(ByteBuffer.wrap(data), dataOffset);
+		if(method == STORED){
+			return data;
+		}
+		Inflater inflater = new Inflater(true);
+		try {
+			// com nowrap o Inflater precisa de um byte extra ao final da entrada
+			byte[] input = new byte[compressedSize + 1];
+			System.arraycopy(data, 0, input, 0, compressedSize);
+			inflater.setInput(input);
+			byte[] result = new byte[size];
+			int inflated = 0;
+			while(inflated < size && !inflater.finished()){
+				int count = inflater.inflate(result, inflated, size - inflated);
+				if(count == 0 && (inflater.needsInput() || inflater.needsDictionary())){
+					break;
+				}
+				inflated += count;
+			}
+			if(inflated != size){
+				throw new ZipException("Tamanho invlido de " + JarFile.MANIFEST_NAME + " em '" + this.jarFilePath + "'.");
+			}
+			return result;
+		} catch (DataFormatException e) {
+			throw new ZipException("Problemas ao descompactar " + JarFile.MANIFEST_NAME + " em '" + this.jarFilePath + "': " + e.getMessage());
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Garante que o buffer contenha os bytes [position, position + length) do arquivo.
+	 */
+	private ByteBuffer fill(long position, int length) throws IOException {
+		if(this.bufferPosition >= 0 && position >= this.bufferPosition && position + length <= this.bufferPosition + this.buffer.limit()){
+			return this.buffer;
+		}
+		if(length > this.buffer.capacity()){
+			this.buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		this.buffer.clear();
+		this.buffer.limit((int) Math.min(this.buffer.capacity(), Math.max(length, this.channel.size() - position)));
+		if(this.buffer.limit() < length){
+			throw new EOFException("Fim inesperado do arquivo '" + this.jarFilePath + "'.");
+		}
+		readFully(this.buffer, position);
+		this.bufferPosition = position;
+		return this.buffer;
+	}
+
+	private void readFully(ByteBuffer target, long position) throws IOException {
+		while(target.hasRemaining()){
+			int read = this.channel.read(target, position);
+			if(read == -1){
+				throw new EOFException("Fim inesperado do arquivo '" + this.jarFilePath + "'.");
+			}
+			position += read;
+		}
+		target.flip();
+	}
+
+	private Manifest readWithJarFile() throws IOException {
+		JarFile jarFile = new JarFile(this.jarFilePath);
+		try {
+			return jarFile.getManifest();
+		} finally {
+			try {
+				jarFile.close();
+			} catch (IOException e) {
+				logger.error("Problemas ao liberar recursos: " + this.jarFilePath + " " + e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,306 @@
+package org.reichel.jar;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Extrao paralela de um jar.
+ * A lista de entradas  lida uma vez, os diretrios so criados antes da extrao e cada worker abre o seu prprio
+ * ZipFile, retirando a prxima entrada de um contador compartilhado e gravando atravs de FileChannel com um buffer reutilizado.
+ * No modo incremental as entradas cujo CRC-32 e tamanho no mudaram em relao ao arquivo de destino no so regravadas.
+ * Assim como no StreamJarExtractor, entradas que resolvem para fora de targetFolder no so gravadas nem removidas.
+ * @author Markus Reichel
+ * @see JarUtils#extractFilesParallel(String, String, boolean)
+ */
+class ParallelJarExtractor {
+
+	private static final Logger logger = Logger.getLogger(ParallelJarExtractor.class);
+
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	private final String jarFilePath;
+
+	private final String targetFolder;
+
+	private final ExecutorService executorService;
+
+	private final int workers;
+
+	private final boolean incremental;
+
+	private final boolean deleteRemoved;
+
+	private ExtractIndex extractIndex;
+
+	private String canonicalTarget;
+
+	ParallelJarExtractor(String jarFilePath, String targetFolder, ExecutorService executorService, int workers, boolean incremental, boolean deleteRemoved){
+		this.jarFilePath = jarFilePath;
+		this.targetFolder = targetFolder;
+		this.executorService = executorService;
+		this.workers = workers;
+		this.incremental = incremental;
+		this.deleteRemoved = deleteRemoved;
+	}
+
+	ExtractResult extract(boolean extractMetaInf) throws IOException {
+		ExtractResult result = new ExtractResult();
+		this.canonicalTarget = new File(this.targetFolder).getCanonicalPath() + File.separator;
+		final List<String> names = listEntries(extractMetaInf);
+		if(this.incremental){
+			this.extractIndex = new ExtractIndex(this.jarFilePath, this.targetFolder);
+		}
+		createDirectories(names, result);
+
+		final AtomicInteger next = new AtomicInteger();
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for(int i = 0; i < Math.min(this.workers, Math.max(1, names.size())); i++){
+			futures.add(this.executorService.submit(new Worker(names, next, result)));
+		}
+		IOException failure = null;
+		for(Future<Void> future : futures){
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				next.set(names.size());
+				failure = new InterruptedIOException("Extrao interrompida: " + this.jarFilePath);
+			} catch (ExecutionException e) {
+				if(failure == null){
+					failure = e.getCause() instanceof IOException ? (IOException) e.getCause()
+							: new IOException("Problemas ao extrair '" + this.jarFilePath + "': " + e.getCause());
+				}
+			}
+		}
+		if(failure != null){
+			throw failure;
+		}
+		if(this.extractIndex != null){
+			if(this.deleteRemoved){
+				deleteRemoved(names, result);
+			}
+			try {
+				this.extractIndex.store();
+			} catch (IOException e) {
+				logger.error("Erro ao gravar ndice de extrao em " + this.targetFolder + ": " + e.getMessage());
+				result.error(this.extractIndex.getIndexFile().getName(), e);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Remove os arquivos registrados na extrao anterior deste jar que no existem mais no jar.
+	 */
+	private void deleteRemoved(List<String> names, ExtractResult result) {
+		for(String name : this.extractIndex.removed(new HashSet<String>(names))){
+			File file = resolve(name, result);
+			if(file != null && file.isFile()){
+				if(file.delete()){
+					result.deleted();
+				} else {
+					result.error(name, new IOException("No foi possvel remover:'" + file.getAbsolutePath() + "'"));
+				}
+			}
+		}
+	}
+
+	private List<String> listEntries(boolean extractMetaInf) throws IOException {
+		List<String> names = new ArrayList<String>();
+		ZipFile zipFile = new ZipFile(this.jarFilePath);
+		try {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while(entries.hasMoreElements()){
+				String name = entries.nextElement().getName();
+				if(!name.contains("META-INF") || extractMetaInf){
+					names.add(name);
+				}
+			}
+		} finally {
+			close(zipFile);
+		}
+		return names;
+	}
+
+	/**
+	 * Cria uma nica vez cada diretrio necessrio, a ordenao garante que os pais venham antes dos filhos.
+	 */
+	private void createDirectories(List<String> names, ExtractResult result) {
+		Set<String> directories = new TreeSet<String>();
+		for(String name : names){
+			int index = name.endsWith("/") ? name.length() - 1 : name.lastIndexOf('/');
+			if(index > 0){
+				directories.add(name.substring(0, index));
+			}
+		}
+		for(String directory : directories){
+			File file = resolve(directory + "/", result);
+			if(file != null && !file.isDirectory() && !file.mkdirs() && !file.isDirectory()){
+				result.error(directory + "/", new IOException("No foi possvel criar diretrios:'" + file.getAbsolutePath() + "'"));
+			}
+		}
+	}
+
+	/**
+	 * @return arquivo de destino da entrada ou null, registrando o erro, se ele estiver fora de targetFolder
+	 */
+	private File resolve(String name, ExtractResult result) {
+		File file = new File(this.targetFolder + name);
+		try {
+			if((file.getCanonicalPath() + File.separator).startsWith(this.canonicalTarget)){
+				return file;
+			}
+			logger.error("Entrada fora do diretrio de destino: " + name);
+			result.error(name, new IOException("Entrada fora do diretrio de destino '" + this.canonicalTarget + "': " + name));
+		} catch (IOException e) {
+			result.error(name, e);
+		}
+		return null;
+	}
+
+	private void close(ZipFile zipFile) {
+		try {
+			zipFile.close();
+		} catch (IOException e) {
+			logger.error("Problemas ao liberar recursos: " + this.jarFilePath + " " + e.getMessage());
+		}
+	}
+
+	private class Worker implements Callable<Void> {
+
+		private final List<String> names;
+
+		private final AtomicInteger next;
+
+		private final ExtractResult result;
+
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+
+		private final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+
+		private Worker(List<String> names, AtomicInteger next, ExtractResult result){
+			this.names = names;
+			this.next = next;
+			this.result = result;
+		}
+
+		@Override
+		public Void call() throws IOException {
+			ZipFile zipFile = new ZipFile(jarFilePath);
+			try {
+				int index;
+				while((index = this.next.getAndIncrement()) < this.names.size()){
+					String name = this.names.get(index);
+					if(!name.endsWith("/")){
+						try {
+							ZipEntry entry = zipFile.getEntry(name);
+							if(entry == null){
+								throw new IOException("Entrada no encontrada: " + name);
+							}
+							File targetFile = resolve(name, this.result);
+							if(targetFile == null){
+								continue;
+							}
+							if(extractIndex != null && isUnchanged(entry, targetFile)){
+								this.result.skipped();
+							} else {
+								this.result.extracted(extractEntry(zipFile, entry, targetFile));
+							}
+						} catch (IOException e) {
+							logger.error("Erro ao extrair '" + name + "' de " + jarFilePath + ": " + e.getMessage());
+							this.result.error(name, e);
+						}
+					}
+				}
+			} finally {
+				close(zipFile);
+			}
+			return null;
+		}
+
+		/**
+		 * Sem registro no ndice o arquivo de destino com o mesmo tamanho tem o CRC-32 recalculado uma vez.
+		 */
+		private boolean isUnchanged(ZipEntry entry, File targetFile) throws IOException {
+			String name = entry.getName();
+			long crc = entry.getCrc();
+			long size = entry.getSize();
+			if(crc == -1 || size == -1){
+				return false;
+			}
+			if(extractIndex.isUnchanged(name, crc, size, targetFile)
+					|| (!extractIndex.hasRecord(name) && targetFile.isFile() && targetFile.length() == size && crc(targetFile) == crc)){
+				extractIndex.record(name, crc, size, targetFile.lastModified());
+				return true;
+			}
+			return false;
+		}
+
+		private long crc(File file) throws IOException {
+			CRC32 crc32 = new CRC32();
+			InputStream is = new FileInputStream(file);
+			try {
+				int bytesRead;
+				while((bytesRead = is.read(this.buffer)) != -1){
+					crc32.update(this.buffer, 0, bytesRead);
+				}
+			} finally {
+				is.close();
+			}
+			return crc32.getValue();
+		}
+
+		private long extractEntry(ZipFile zipFile, ZipEntry entry, File targetFile) throws IOException {
+			long bytes = 0;
+			InputStream is = zipFile.getInputStream(entry);
+			try {
+				FileOutputStream fos = new FileOutputStream(targetFile);
+				try {
+					FileChannel channel = fos.getChannel();
+					int bytesRead;
+					while((bytesRead = is.read(this.buffer)) != -1){
+						this.byteBuffer.clear();
+						this.byteBuffer.limit(bytesRead);
+						while(this.byteBuffer.hasRemaining()){
+							channel.write(this.byteBuffer);
+						}
+						bytes += bytesRead;
+					}
+				} finally {
+					fos.close();
+				}
+			} finally {
+				is.close();
+			}
+			if(extractIndex != null){
+				if(entry.getTime() != -1){
+					targetFile.setLastModified(entry.getTime());
+				}
+				extractIndex.record(entry.getName(), entry.getCrc(), entry.getSize(), targetFile.lastModified());
+			}
+			return bytes;
+		}
+	}
+}
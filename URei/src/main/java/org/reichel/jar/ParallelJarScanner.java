@@ -0,0 +1,145 @@
+package org.reichel.jar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Varredura paralela de diretrios em busca de arquivos jar.
+ * Cada diretrio e cada jar encontrado vira uma tarefa no ExecutorService, o resultado  acumulado
+ * em um mapa concorrente e copiado para o mapa do chamador ao final, gerando o mesmo contedo da varredura serial.
+ * @author Markus Reichel
+ * @see JarUtils#threads(Integer)
+ * @see JarUtils#executor(ExecutorService)
+ */
+class ParallelJarScanner {
+
+	private final JarUtils jarUtils;
+
+	private final ExecutorService executorService;
+
+	private final String rootFolder;
+
+	private final String[] exceptions;
+
+	private final Map<String, JarVersion> jarVersions = new ConcurrentHashMap<String, JarVersion>();
+
+	/** ConcurrentHashMap no aceita valores nulos, jars sem 'Implementation-Version' ficam aqui. */
+	private final Set<String> withoutVersion = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	private final AtomicInteger pending = new AtomicInteger();
+
+	private final CountDownLatch done = new CountDownLatch(1);
+
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+	ParallelJarScanner(JarUtils jarUtils, ExecutorService executorService, String rootFolder, String... exceptions){
+		this.jarUtils = jarUtils;
+		this.executorService = executorService;
+		this.rootFolder = rootFolder;
+		this.exceptions = exceptions;
+	}
+
+	Map<String, JarVersion> scan(String targetFolder, Map<String, JarVersion> result) throws IOException {
+		File targetFolderFile = new File(targetFolder);
+		if(targetFolderFile.exists()){
+			submit(targetFolderFile);
+			try {
+				this.done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				this.failure.compareAndSet(null, new InterruptedIOException("Varredura interrompida: " + targetFolder));
+			}
+		}
+		rethrowFailure();
+		result.putAll(this.jarVersions);
+		for(String path : this.withoutVersion){
+			result.put(path, null);
+		}
+		return result;
+	}
+
+	private void submit(final File file) {
+		this.pending.incrementAndGet();
+		try {
+			this.executorService.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						if(failure.get() == null){
+							visit(file);
+						}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					} finally {
+						finish();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			this.failure.compareAndSet(null, e);
+			finish();
+		}
+	}
+
+	private void finish() {
+		if(this.pending.decrementAndGet() == 0){
+			this.done.countDown();
+		}
+	}
+
+	private void visit(File file) throws IOException {
+		if(file.isDirectory()){
+			if(this.exceptions == null || this.exceptions.length == 0 || !this.jarUtils.isException(file.getAbsolutePath(), this.exceptions)){
+				String[] filePaths = file.list();
+				if(filePaths != null){
+					for(String filePath : filePaths){
+						File child = new File(file.getAbsolutePath() + File.separatorChar + filePath);
+						if(child.exists() && (child.isDirectory() || isJar(child))){
+							submit(child);
+						}
+					}
+				}
+			}
+		} else if(isJar(file)){
+			String absolutePath = file.getAbsolutePath();
+			String relativePath = absolutePath.substring(this.rootFolder.length() + 1);
+			JarVersion jarVersion = this.jarUtils.getJarVersion(this.rootFolder, file);
+			if(jarVersion != null){
+				this.jarVersions.put(relativePath, jarVersion);
+			} else {
+				this.withoutVersion.add(relativePath);
+			}
+		}
+	}
+
+	private boolean isJar(File file) {
+		return file.getAbsolutePath().toLowerCase().endsWith(".jar");
+	}
+
+	private void rethrowFailure() throws IOException {
+		Throwable e = this.failure.get();
+		if(e == null){
+			return;
+		}
+		if(e instanceof IOException){
+			throw (IOException) e;
+		}
+		if(e instanceof RuntimeException){
+			throw (RuntimeException) e;
+		}
+		if(e instanceof Error){
+			throw (Error) e;
+		}
+		throw new IOException("Problemas na varredura paralela: " + e.getClass().getName() + ":" + e.getMessage());
+	}
+}
@@ -0,0 +1,135 @@
+package org.reichel.jar;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Extrao de um jar a partir de um InputStream, gravando cada entrada assim que ela chega no stream.
+ *  utilizado ZipInputStream e no JarInputStream, pois este ltimo consome o META-INF/MANIFEST.MF sem devolv-lo como entrada.
+ * @author Markus Reichel
+ * @see JarUtils#extractFilesFromStream(InputStream, String, boolean)
+ */
+class StreamJarExtractor {
+
+	private static final Logger logger = Logger.getLogger(StreamJarExtractor.class);
+
+	private final String targetFolder;
+
+	private final Set<String> directories = new HashSet<String>();
+
+	private final byte[] buffer = new byte[ParallelJarExtractor.BUFFER_SIZE];
+
+	private final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+
+	StreamJarExtractor(String targetFolder){
+		this.targetFolder = targetFolder;
+	}
+
+	/**
+	 * Erros de leitura do stream interrompem a extrao, erros de escrita so registrados por entrada e a entrada  descartada.
+	 * Entradas cujo caminho fica fora de targetFolder (../ ou caminho absoluto) so rejeitadas e registradas como erro.
+	 */
+	ExtractResult extract(InputStream inputStream, boolean extractMetaInf) throws IOException {
+		ExtractResult result = new ExtractResult();
+		String canonicalTarget = new File(this.targetFolder).getCanonicalPath() + File.separator;
+		ZipInputStream zis = new ZipInputStream(inputStream);
+		ZipEntry entry;
+		while((entry = zis.getNextEntry()) != null){
+			String name = entry.getName();
+			if(!name.contains("META-INF") || extractMetaInf){
+				if(entry.isDirectory()){
+					createDirectory(name.substring(0, name.length() - 1), canonicalTarget, result);
+				} else {
+					int index = name.lastIndexOf('/');
+					if(index > 0){
+						createDirectory(name.substring(0, index), canonicalTarget, result);
+					}
+					File file = resolve(name, canonicalTarget, result);
+					if(file != null){
+						extractEntry(zis, name, file, result);
+					}
+				}
+			}
+			zis.closeEntry();
+		}
+		return result;
+	}
+
+	private File resolve(String name, String canonicalTarget, ExtractResult result) {
+		File file = new File(this.targetFolder, name);
+		try {
+			if((file.getCanonicalPath() + File.separator).startsWith(canonicalTarget)){
+				return file;
+			}
+			logger.error("Entrada fora do diretrio de destino: " + name);
+			result.error(name, new IOException("Entrada fora do diretrio de destino '" + canonicalTarget + "': " + name));
+		} catch (IOException e) {
+			result.error(name, e);
+		}
+		return null;
+	}
+
+	private void createDirectory(String directory, String canonicalTarget, ExtractResult result) {
+		if(this.directories.add(directory)){
+			File file = resolve(directory + "/", canonicalTarget, result);
+			if(file != null && !file.isDirectory() && !file.mkdirs() && !file.isDirectory()){
+				result.error(directory + "/", new IOException("No foi possvel criar diretrios:'" + file.getAbsolutePath() + "'"));
+			}
+		}
+	}
+
+	private void extractEntry(ZipInputStream zis, String name, File file, ExtractResult result) throws IOException {
+		FileOutputStream fos;
+		try {
+			fos = new FileOutputStream(file);
+		} catch (IOException e) {
+			logger.error("Erro ao criar FileOutputStream: " + file.getPath() + " " + e.getMessage());
+			result.error(name, e);
+			return;
+		}
+		long bytes = 0;
+		IOException writeError = null;
+		try {
+			FileChannel channel = fos.getChannel();
+			int bytesRead;
+			while((bytesRead = zis.read(this.buffer)) != -1){
+				if(writeError == null){
+					try {
+						this.byteBuffer.clear();
+						this.byteBuffer.limit(bytesRead);
+						while(this.byteBuffer.hasRemaining()){
+							channel.write(this.byteBuffer);
+						}
+						bytes += bytesRead;
+					} catch (IOException e) {
+						writeError = e;
+					}
+				}
+			}
+		} finally {
+			try {
+				fos.close();
+			} catch (IOException e) {
+				if(writeError == null){
+					writeError = e;
+				}
+			}
+		}
+		if(writeError != null){
+			logger.error("Erro ao escrever '" + name + "': " + writeError.getMessage());
+			result.error(name, writeError);
+		} else {
+			result.extracted(bytes);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package org.reichel.jar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Plano de atualizao resultante da comparao entre o mapa de verses local e o remoto.
+ * Cada lista  ordenada pelo caminho normalizado do jar.
+ * @author Markus Reichel
+ * @see JarUtils#diff(java.util.Map, java.util.Map)
+ */
+public class UpdatePlan {
+
+	private final List<JarVersionChange> added = new ArrayList<JarVersionChange>();
+
+	private final List<JarVersionChange> removed = new ArrayList<JarVersionChange>();
+
+	private final List<JarVersionChange> upgraded = new ArrayList<JarVersionChange>();
+
+	private final List<JarVersionChange> downgraded = new ArrayList<JarVersionChange>();
+
+	private final List<JarVersionChange> typeChanged = new ArrayList<JarVersionChange>();
+
+	private int unchanged = 0;
+
+	void add(String path, JarVersion local, JarVersion remote, ChangeTypeEnum changeTypeEnum){
+		JarVersionChange change = new JarVersionChange(path, local, remote, changeTypeEnum);
+		switch(changeTypeEnum){
+			case ADDED: this.added.add(change); break;
+			case REMOVED: this.removed.add(change); break;
+			case UPGRADED: this.upgraded.add(change); break;
+			case DOWNGRADED: this.downgraded.add(change); break;
+			case TYPE_CHANGED: this.typeChanged.add(change); break;
+		}
+	}
+
+	void unchanged(){
+		this.unchanged++;
+	}
+
+	/**
+	 * Acrescenta ao final deste plano as mudanas de um plano calculado para uma faixa posterior de caminhos.
+	 */
+	void append(UpdatePlan plan){
+		this.added.addAll(plan.added);
+		this.removed.addAll(plan.removed);
+		this.upgraded.addAll(plan.upgraded);
+		this.downgraded.addAll(plan.downgraded);
+		this.typeChanged.addAll(plan.typeChanged);
+		this.unchanged += plan.unchanged;
+	}
+
+	/**
+	 * @return jars que existem somente no remoto
+	 */
+	public List<JarVersionChange> getAdded() {
+		return Collections.unmodifiableList(added);
+	}
+
+	/**
+	 * @return jars que existem somente no local
+	 */
+	public List<JarVersionChange> getRemoved() {
+		return Collections.unmodifiableList(removed);
+	}
+
+	/**
+	 * @return jars com verso remota maior que a local, ou sem verso local
+	 */
+	public List<JarVersionChange> getUpgraded() {
+		return Collections.unmodifiableList(upgraded);
+	}
+
+	/**
+	 * @return jars com verso remota menor que a local
+	 */
+	public List<JarVersionChange> getDowngraded() {
+		return Collections.unmodifiableList(downgraded);
+	}
+
+	/**
+	 * @return jars cujo JarTypeEnum mudou, independente da verso
+	 */
+	public List<JarVersionChange> getTypeChanged() {
+		return Collections.unmodifiableList(typeChanged);
+	}
+
+	/**
+	 * @return quantidade de jars iguais no local e no remoto
+	 */
+	public int getUnchanged() {
+		return unchanged;
+	}
+
+	/**
+	 * @return true se no houver nenhuma mudana
+	 */
+	public boolean isEmpty(){
+		return added.isEmpty() && removed.isEmpty() && upgraded.isEmpty() && downgraded.isEmpty() && typeChanged.isEmpty();
+	}
+
+	@Override
+	public String toString(){
+		return "added=" + added.size() + " removed=" + removed.size() + " upgraded=" + upgraded.size()
+				+ " downgraded=" + downgraded.size() + " typeChanged=" + typeChanged.size() + " unchanged=" + unchanged;
+	}
+}